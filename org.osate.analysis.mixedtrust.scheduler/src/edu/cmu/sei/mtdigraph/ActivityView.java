@@ -0,0 +1,139 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Immutable view of the modes and transitions active in an analysis, used by an
+ * {@link AnalysisContext} instead of the active flags of the model so that
+ * different modes and transitions can be analyzed at the same time.
+ *
+ * A graph is active if it has no parent mode or transition, or if one of them is
+ * active. The activity of the graphs given at construction is computed once and
+ * stored as a bitset indexed by the graph index, which the views of a modal system
+ * share (see {@link #ofEach(Collection, Collection)}); other graphs are tested
+ * against the active containers.
+ */
+public final class ActivityView {
+
+	final IdentityHashMap<MTTaskGraph, Integer> graphIndex;
+
+	final Set<ActiveContainer> activeContainers;
+
+	final BitSet activeGraphs;
+
+	ActivityView(IdentityHashMap<MTTaskGraph, Integer> graphIndex, Set<ActiveContainer> activeContainers){
+		this.graphIndex = graphIndex;
+		this.activeContainers = activeContainers;
+		activeGraphs = new BitSet(graphIndex.size());
+		for (var entry:graphIndex.entrySet()){
+			if (entry.getKey().isActiveIn(activeContainers)) {
+				activeGraphs.set(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * View of graphs where only the containers in active are active
+	 */
+	public static ActivityView of(Collection<MTTaskGraph> graphs, Collection<? extends ActiveContainer> active){
+		return new ActivityView(index(graphs), identitySet(active));
+	}
+
+	/**
+	 * One view of graphs per container, where only that container is active
+	 */
+	public static ActivityView[] ofEach(Collection<MTTaskGraph> graphs, Collection<? extends ActiveContainer> containers){
+		var index = index(graphs);
+		var views = new ActivityView[containers.size()];
+		int i = 0;
+		for (ActiveContainer c:containers){
+			views[i++] = new ActivityView(index, identitySet(Collections.singleton(c)));
+		}
+		return views;
+	}
+
+	static IdentityHashMap<MTTaskGraph, Integer> index(Collection<MTTaskGraph> graphs){
+		var index = new IdentityHashMap<MTTaskGraph, Integer>();
+		for (MTTaskGraph g:graphs){
+			if (!index.containsKey(g)) {
+				index.put(g, index.size());
+			}
+		}
+		return index;
+	}
+
+	static Set<ActiveContainer> identitySet(Collection<? extends ActiveContainer> containers){
+		Set<ActiveContainer> set = Collections.newSetFromMap(new IdentityHashMap<ActiveContainer, Boolean>());
+		set.addAll(containers);
+		return Collections.unmodifiableSet(set);
+	}
+
+	public boolean isActive(ActiveContainer c){
+		return activeContainers.contains(c);
+	}
+
+	public boolean isActive(MTTaskGraph g){
+		Integer i = graphIndex.get(g);
+		if (i == null) {
+			return g.isActiveIn(activeContainers);
+		}
+		return activeGraphs.get(i);
+	}
+
+	/**
+	 * As {@link MTTaskNode#isActive()}: a node is active if one of its graphs is, and
+	 * a transitioning hypertask also with its own flag
+	 */
+	public boolean isActive(MTTaskNode n){
+		for (MTTaskGraph g:n.parentGraphs){
+			if (isActive(g)) {
+				return true;
+			}
+		}
+		if (n.isTransitioningHT()) {
+			return n.active;
+		}
+		return false;
+	}
+
+	public boolean isActive(MTTaskEdge e){
+		for (MTTaskGraph g:e.parentGraphs){
+			if (isActive(g)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,395 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+/**
+ * Scratch and trace state of a digraph analysis, i.e., the request bound trace,
+ * the graphs already accounted for the current victim, and the debugging options.
+ * The graphs seen by the context get dense indices, and the membership tests of
+ * the analysis (accounted nodes, common parent graphs) are bitset operations on
+ * the parent graphs of the nodes.
+ *
+ * Each {@link MTDigraphScheduler} owns its context and passes it to the task graphs
+ * it queries. Analyses that use different contexts (and task graphs) do not share
+ * mutable state and can run on different threads, e.g., one per modal system or
+ * one per victim node with {@link MTDigraphScheduler#isMTNodeSchedulable(AnalysisContext, MTTaskGraph, MTTaskNode)}.
+ * A context must not be used by two threads at the same time. The activity of the
+ * modes is read from the model unless the context has an {@link ActivityView},
+ * hence contexts with different views can analyze different modes of the same
+ * modal system at the same time.
+ *
+ * The context also memoizes the request bounds (and request bound functions) of
+ * each graph for the current victim, which the fixed-point iterations of the victim
+ * query again with longer intervals, computed on the graphs compiled for the victim
+ * (see {@link CompiledTaskGraph}). They must be cleared with
+ * {@link #clearRequestBounds()} when the graphs change, e.g., a mode is activated
+ * or a deadline adjusted.
+ *
+ * The trace records one event per contribution to a request bound, i.e., the
+ * request of a node, the jitter of a graph or the blocking of a node. Tracing is
+ * disabled by default and the analyses then only test {@link #isTracing()}, without
+ * allocating anything. When enabled, the events are stored in parallel arrays and
+ * only rendered as text by {@link #traceToString()}.
+ */
+public class AnalysisContext {
+
+	public enum TraceEvent {
+		// request of a node of a graph within an interval
+		REQUEST,
+		// maximum jitter of a graph, added to the interval
+		JITTER,
+		// non-preemptive blocking of a node
+		BLOCKING
+	}
+
+	static final int INITIAL_TRACE_CAPACITY = 64;
+
+	boolean tracing = false;
+
+	int traceSize = 0;
+
+	TraceEvent[] traceEvents = new TraceEvent[0];
+
+	MTTaskNode[] traceVictims = new MTTaskNode[0];
+
+	MTTaskGraph[] traceGraphs = new MTTaskGraph[0];
+
+	MTTaskNode[] traceNodes = new MTTaskNode[0];
+
+	long[] traceIntervals = new long[0];
+
+	long[] traceContributions = new long[0];
+
+	// dense indices of the graphs seen since the request bounds were cleared, and the
+	// parent graphs of the nodes as bitsets of these indices
+	IdentityHashMap<MTTaskGraph, Integer> graphIndices = new IdentityHashMap<MTTaskGraph, Integer>();
+
+	IdentityHashMap<MTTaskNode, ParentMask> parentMasks = new IdentityHashMap<MTTaskNode, ParentMask>();
+
+	// the parent graphs of a node are only added, hence a mask is extended with the
+	// ones added since it was built
+	static final class ParentMask {
+		final BitSet graphs = new BitSet();
+
+		int parents = 0;
+	}
+
+	// graphs accounted, whose nodes do not add to the requests
+	BitSet accounted = new BitSet();
+
+	// activity of the modes, from the model if null
+	ActivityView activity = null;
+
+	// kept across victims, while the graphs are not modified
+	IdentityHashMap<MTTaskGraph, InterferenceTerms> interferenceTerms = new IdentityHashMap<MTTaskGraph, InterferenceTerms>();
+
+	IdentityHashMap<MTTaskGraph, CompiledTaskGraph> compiledGraphs = new IdentityHashMap<MTTaskGraph, CompiledTaskGraph>();
+
+	IdentityHashMap<MTTaskGraph, RequestBoundMemo> requestBounds = new IdentityHashMap<MTTaskGraph, RequestBoundMemo>();
+
+	IdentityHashMap<MTTaskGraph, RequestBoundFunction> requestBoundFunctions = new IdentityHashMap<MTTaskGraph, RequestBoundFunction>();
+
+	// frames of the request bound searches, reused by all the searches of the context
+	TraversalStack traversalStack = new TraversalStack();
+
+	boolean debugging = false;
+
+	ArrayList<String> debugCategories = new ArrayList<String>();
+
+	public AnalysisContext(){
+	}
+
+	/**
+	 * Empty context with the debugging options of settings
+	 */
+	public AnalysisContext(AnalysisContext settings){
+		debugging = settings.debugging;
+		tracing = settings.tracing;
+		debugCategories.addAll(settings.debugCategories);
+	}
+
+	public void setTracing(boolean t){
+		tracing = t;
+	}
+
+	public boolean isTracing(){
+		return tracing;
+	}
+
+	/**
+	 * Records an event, callers check {@link #isTracing()} first so that a
+	 * disabled trace costs a single test.
+	 */
+	public void trace(TraceEvent event, MTTaskNode victim, MTTaskGraph graph, MTTaskNode node, long interval, long contribution){
+		if (traceSize == traceEvents.length){
+			int capacity = Math.max(INITIAL_TRACE_CAPACITY, traceSize * 2);
+			traceEvents = Arrays.copyOf(traceEvents, capacity);
+			traceVictims = Arrays.copyOf(traceVictims, capacity);
+			traceGraphs = Arrays.copyOf(traceGraphs, capacity);
+			traceNodes = Arrays.copyOf(traceNodes, capacity);
+			traceIntervals = Arrays.copyOf(traceIntervals, capacity);
+			traceContributions = Arrays.copyOf(traceContributions, capacity);
+		}
+		traceEvents[traceSize] = event;
+		traceVictims[traceSize] = victim;
+		traceGraphs[traceSize] = graph;
+		traceNodes[traceSize] = node;
+		traceIntervals[traceSize] = interval;
+		traceContributions[traceSize] = contribution;
+		traceSize++;
+	}
+
+	public int getTraceSize(){
+		return traceSize;
+	}
+
+	public TraceEvent getTraceEvent(int i){
+		return traceEvents[i];
+	}
+
+	public MTTaskNode getTraceVictim(int i){
+		return traceVictims[i];
+	}
+
+	public MTTaskGraph getTraceGraph(int i){
+		return traceGraphs[i];
+	}
+
+	public MTTaskNode getTraceNode(int i){
+		return traceNodes[i];
+	}
+
+	public long getTraceInterval(int i){
+		return traceIntervals[i];
+	}
+
+	public long getTraceContribution(int i){
+		return traceContributions[i];
+	}
+
+	public void clearTrace(){
+		// keep the references until they are overwritten, the arrays are scratch
+		traceSize = 0;
+	}
+
+	public String traceToString(){
+		StringBuilder r = new StringBuilder();
+		for (int i=0;i<traceSize;i++){
+			switch (traceEvents[i]) {
+			case REQUEST:
+				r.append("vitim("+traceVictims[i]+").RF(t:"+traceIntervals[i]+",g("+traceGraphs[i]+").node("+traceNodes[i]+"),rf:"+traceContributions[i]+")");
+				break;
+			case JITTER:
+				r.append("victim("+traceVictims[i]+").jitter("+traceContributions[i]+","+traceNodes[i]+")");
+				break;
+			case BLOCKING:
+				r.append("vitim("+traceVictims[i]+").block("+traceNodes[i]+")");
+				break;
+			}
+			r.append("\n");
+		}
+		return r.toString();
+	}
+
+	/**
+	 * Analyzes with the activity of view instead of the active flags of the model,
+	 * or with the model if view is null
+	 */
+	public void setActivity(ActivityView view){
+		activity = view;
+		interferenceTerms.clear();
+		clearRequestBounds();
+	}
+
+	public ActivityView getActivity(){
+		return activity;
+	}
+
+	public boolean isActive(MTTaskGraph g){
+		return activity == null ? g.isActive() : activity.isActive(g);
+	}
+
+	public boolean isActive(MTTaskNode n){
+		return activity == null ? n.isActive() : activity.isActive(n);
+	}
+
+	public boolean isActive(MTTaskEdge e){
+		return activity == null ? e.isActive() : activity.isActive(e);
+	}
+
+	/**
+	 * Dense index of graph g in this context
+	 */
+	int indexOf(MTTaskGraph g){
+		Integer i = graphIndices.get(g);
+		if (i == null) {
+			i = graphIndices.size();
+			graphIndices.put(g, i);
+		}
+		return i;
+	}
+
+	/**
+	 * Parent graphs of n as a bitset of their indices in this context
+	 */
+	BitSet getParentMask(MTTaskNode n){
+		ParentMask mask = parentMasks.get(n);
+		if (mask == null) {
+			mask = new ParentMask();
+			parentMasks.put(n, mask);
+		}
+		while (mask.parents < n.parentGraphs.size()) {
+			mask.graphs.set(indexOf(n.parentGraphs.get(mask.parents++)));
+		}
+		return mask.graphs;
+	}
+
+	/**
+	 * As {@link MTTaskNode#hasCommonParent(MTTaskNode)}, with the parent masks
+	 */
+	public boolean hasCommonParent(MTTaskNode n, MTTaskNode o){
+		return getParentMask(n).intersects(getParentMask(o));
+	}
+
+	public boolean isParent(MTTaskGraph g, MTTaskNode n){
+		return getParentMask(n).get(indexOf(g));
+	}
+
+	/**
+	 * Whether n belongs to a graph accounted
+	 */
+	public boolean isAccounted(MTTaskNode n){
+		return getParentMask(n).intersects(accounted);
+	}
+
+	public void addAccounted(MTTaskGraph g){
+		accounted.set(indexOf(g));
+	}
+
+	public void clearAccounted(){
+		accounted.clear();
+	}
+
+	/**
+	 * Request bounds of graph for victim with the nodes currently accounted,
+	 * discarding the ones computed for another victim or accounted nodes
+	 */
+	RequestBoundMemo getRequestBoundMemo(MTTaskGraph graph, MTTaskNode victim, boolean inclusive){
+		RequestBoundMemo memo = requestBounds.get(graph);
+		if (memo == null || !memo.isValidFor(victim, inclusive, accounted)) {
+			memo = new RequestBoundMemo(this, getCompiledGraph(graph), victim, inclusive);
+			requestBounds.put(graph, memo);
+		}
+		return memo;
+	}
+
+	/**
+	 * Request bound function of graph for victim with the nodes currently accounted,
+	 * if one was stored, otherwise null
+	 */
+	RequestBoundFunction getRequestBoundFunction(MTTaskGraph graph, MTTaskNode victim, boolean inclusive){
+		RequestBoundFunction f = requestBoundFunctions.get(graph);
+		if (f == null || f.victim != victim || f.inclusive != inclusive || !accounted.equals(f.accounted)) {
+			return null;
+		}
+		return f;
+	}
+
+	void putRequestBoundFunction(MTTaskGraph graph, MTTaskNode victim, RequestBoundFunction f){
+		f.victim = victim;
+		f.accounted = (BitSet) accounted.clone();
+		requestBoundFunctions.put(graph, f);
+	}
+
+	/**
+	 * Jitter and blocking terms of graph with the activity of this context, computed
+	 * again when the graph has been modified since
+	 */
+	InterferenceTerms getInterferenceTerms(MTTaskGraph graph){
+		InterferenceTerms terms = interferenceTerms.get(graph);
+		if (terms == null || terms.modCount != graph.getModCount()) {
+			terms = new InterferenceTerms(this, graph);
+			interferenceTerms.put(graph, terms);
+		}
+		return terms;
+	}
+
+	/**
+	 * Graph compiled since the request bounds were last cleared
+	 */
+	CompiledTaskGraph getCompiledGraph(MTTaskGraph graph){
+		CompiledTaskGraph cg = compiledGraphs.get(graph);
+		if (cg == null) {
+			cg = graph.compile();
+			compiledGraphs.put(graph, cg);
+		}
+		return cg;
+	}
+
+	/**
+	 * Clears the request bounds and compiled graphs, together with the graph indices
+	 * and hence the graphs accounted
+	 */
+	public void clearRequestBounds(){
+		graphIndices.clear();
+		parentMasks.clear();
+		clearAccounted();
+		compiledGraphs.clear();
+		requestBounds.clear();
+		requestBoundFunctions.clear();
+	}
+
+	public void setDebugging(boolean d){
+		debugging = d;
+	}
+
+	public boolean isDebugging(){
+		return debugging;
+	}
+
+	public void addDebugCategory(String cls){
+		debugCategories.add(cls);
+	}
+
+	public void clearDebugCategories(){
+		debugCategories.clear();
+	}
+
+	public void logDebugMessage(boolean condition, LogBuilder builder){
+		if (isDebugging()){
+			if (condition && debugCategories.contains(builder.getCategory())){
+				System.out.println(builder.buildLog());
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Compressed sparse row snapshot of a task graph used by the request bound
+ * engines. The nodes are indexed from zero, the nodes of the graph first and then
+ * the other endpoints of its edges, and the successor edges of node i are the
+ * indices [successorStart[i], successorStart[i+1]) of the edge arrays, in the
+ * order they were added to the graph.
+ *
+ * The interarrivals, execution times and priorities are captured at compilation
+ * time, hence a graph must be compiled again after it changes; an
+ * {@link AnalysisContext} keeps the compiled graphs for the analysis of one victim.
+ * The activity of nodes and edges depends on the active modes and is evaluated by
+ * the engines for every victim, with the activity of the context.
+ */
+class CompiledTaskGraph {
+
+	final int size;
+
+	final MTTaskNode[] nodes;
+
+	final IdentityHashMap<MTTaskNode, Integer> index;
+
+	final long[] wcet;
+	final int[] priority;
+
+	final int[] successorStart;
+	final int[] successorTarget;
+	final long[] interarrival;
+	final MTTaskEdge[] edges;
+
+	CompiledTaskGraph(MTTaskGraph g){
+		index = new IdentityHashMap<MTTaskNode, Integer>();
+		var indexed = new ArrayList<MTTaskNode>();
+		for (MTTaskNode n:g.nodes){
+			add(indexed, n);
+		}
+		int numEdges = 0;
+		for (var entry:g.nodeToSuccessorEdges.entrySet()){
+			add(indexed, entry.getKey());
+			for (MTTaskEdge e:entry.getValue()){
+				add(indexed, e.getTargetNode());
+				numEdges++;
+			}
+		}
+		size = indexed.size();
+		nodes = indexed.toArray(new MTTaskNode[size]);
+		wcet = new long[size];
+		priority = new int[size];
+		successorStart = new int[size + 1];
+		successorTarget = new int[numEdges];
+		interarrival = new long[numEdges];
+		edges = new MTTaskEdge[numEdges];
+
+		int k = 0;
+		for (int i=0;i<size;i++){
+			MTTaskNode n = nodes[i];
+			wcet[i] = n.getWCET();
+			priority[i] = n.getPriority();
+			successorStart[i] = k;
+			var succs = g.nodeToSuccessorEdges.get(n);
+			if (succs == null) {
+				continue;
+			}
+			for (MTTaskEdge e:succs){
+				successorTarget[k] = index.get(e.getTargetNode());
+				interarrival[k] = e.getInterarrival();
+				edges[k] = e;
+				k++;
+			}
+		}
+		successorStart[size] = k;
+	}
+
+	private void add(ArrayList<MTTaskNode> indexed, MTTaskNode n){
+		if (!index.containsKey(n)) {
+			index.put(n, indexed.size());
+			indexed.add(n);
+		}
+	}
+
+	/**
+	 * Index of node n, or -1 if it is not in the graph
+	 */
+	int indexOf(MTTaskNode n){
+		Integer i = index.get(n);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Whether each edge is active in ctx
+	 */
+	boolean[] activeEdges(AnalysisContext ctx){
+		boolean[] active = new boolean[edges.length];
+		for (int k=0;k<edges.length;k++){
+			active[k] = ctx.isActive(edges[k]);
+		}
+		return active;
+	}
+
+	/**
+	 * Whether each node interferes with victim, i.e., it has at most the priority of
+	 * the victim, it is active and it is not accounted yet in ctx
+	 */
+	boolean[] interfering(AnalysisContext ctx, MTTaskNode victim){
+		boolean[] interfering = new boolean[size];
+		for (int i=0;i<size;i++){
+			MTTaskNode n = nodes[i];
+			interfering[i] = priority[i] <= victim.getPriority() && ctx.isActive(n) && !ctx.hasCommonParent(victim, n) && !ctx.isAccounted(n);
+		}
+		return interfering;
+	}
+
+	/**
+	 * Whether node n interferes with victim, see interfering(AnalysisContext, MTTaskNode)
+	 */
+	static boolean interferes(AnalysisContext ctx, MTTaskNode victim, MTTaskNode n){
+		if (n.getPriority() > victim.getPriority() || !ctx.isActive(n)) {
+			// victim node has higher priority hence the execution is zero
+			return false;
+		}
+		// already accounted
+		return !ctx.hasCommonParent(victim, n) && !ctx.isAccounted(n);
+	}
+}
@@ -42,7 +42,7 @@ public class IncreasingDeadlineComparator implements Comparator<MTTaskNode> {
         if (t1.getDeadline()> t2.getDeadline()){
             return 1;
         }
-        return (int)(t1.getUniqueId() - t2.getUniqueId());
+        return Long.compare(t1.getUniqueId(), t2.getUniqueId());
     }
 
     public static void main(String args[]){
@@ -0,0 +1,168 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Maximum jitter and non-preemptive blocking of the nodes of a graph as functions
+ * of the priority of the victim. The jitter of a victim is the largest
+ * deadline minus WCET of the active nodes with lower priority, and its blocking
+ * the largest WCET of the active non-preemptible nodes with higher priority, hence
+ * both are prefix maxima over the nodes sorted by priority, queried by binary
+ * search.
+ *
+ * The terms are computed for the activity of a context and the modification count
+ * of the graph (see {@link MTTaskGraph#getModCount()}). They do not apply to a
+ * victim sharing a parent graph with a node of the graph, whose nodes are then
+ * scanned as before.
+ */
+class InterferenceTerms {
+
+	final long modCount;
+
+	// parent graphs of the nodes
+	final Set<MTTaskGraph> nodeGraphs = Collections.newSetFromMap(new IdentityHashMap<MTTaskGraph, Boolean>());
+
+	// active nodes by increasing priority, with the maximum jitter of the nodes up to
+	// each one and the first node (in the graph) with that jitter
+	final int[] jitterPriority;
+	final long[] jitterMax;
+	final MTTaskNode[] jitterNode;
+
+	// active non-preemptible nodes by decreasing priority, with the maximum WCET of the
+	// nodes up to each one
+	final int[] blockingPriority;
+	final long[] blockingMax;
+
+	InterferenceTerms(AnalysisContext ctx, MTTaskGraph g){
+		modCount = g.getModCount();
+		var active = new ArrayList<MTTaskNode>();
+		var nonPreemptible = new ArrayList<MTTaskNode>();
+		var position = new IdentityHashMap<MTTaskNode, Integer>();
+		for (MTTaskNode n:g.nodes){
+			position.putIfAbsent(n, position.size());
+			nodeGraphs.addAll(n.parentGraphs);
+			if (!ctx.isActive(n)) {
+				continue;
+			}
+			active.add(n);
+			if (!n.isPreemptible()) {
+				nonPreemptible.add(n);
+			}
+		}
+		// stable, hence the nodes with the same priority stay in graph order
+		active.sort((a, b) -> Integer.compare(a.getPriority(), b.getPriority()));
+		nonPreemptible.sort((a, b) -> Integer.compare(b.getPriority(), a.getPriority()));
+
+		jitterPriority = new int[active.size()];
+		jitterMax = new long[active.size()];
+		jitterNode = new MTTaskNode[active.size()];
+		long max = 0;
+		MTTaskNode maxNode = null;
+		for (int i=0;i<active.size();i++){
+			MTTaskNode n = active.get(i);
+			long jitter = n.getDeadline() - n.getWCET();
+			// the first node in the graph wins the ties, as in the scan
+			if (jitter > max || (jitter == max && maxNode != null && position.get(n) < position.get(maxNode))) {
+				max = jitter;
+				maxNode = n;
+			}
+			jitterPriority[i] = n.getPriority();
+			jitterMax[i] = max;
+			jitterNode[i] = maxNode;
+		}
+
+		blockingPriority = new int[nonPreemptible.size()];
+		blockingMax = new long[nonPreemptible.size()];
+		max = 0;
+		for (int i=0;i<nonPreemptible.size();i++){
+			MTTaskNode n = nonPreemptible.get(i);
+			max = Math.max(max, n.getWCET());
+			blockingPriority[i] = n.getPriority();
+			blockingMax[i] = max;
+		}
+	}
+
+	/**
+	 * Whether victim shares a parent graph with a node of the graph
+	 */
+	boolean sharesParent(MTTaskNode victim){
+		for (MTTaskGraph p:victim.parentGraphs){
+			if (nodeGraphs.contains(p)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// number of active nodes with priority lower than p
+	int lowerPriorityCount(int p){
+		int lo = 0, hi = jitterPriority.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (jitterPriority[mid] < p) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	long getJitter(int victimPriority){
+		int k = lowerPriorityCount(victimPriority);
+		return k == 0 ? 0 : jitterMax[k - 1];
+	}
+
+	/**
+	 * Node with the jitter of getJitter, or null if it is zero
+	 */
+	MTTaskNode getJitterNode(int victimPriority){
+		int k = lowerPriorityCount(victimPriority);
+		return k == 0 ? null : jitterNode[k - 1];
+	}
+
+	long getBlocking(int victimPriority){
+		// number of nodes with priority higher than the victim
+		int lo = 0, hi = blockingPriority.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (blockingPriority[mid] > victimPriority) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo == 0 ? 0 : blockingMax[lo - 1];
+	}
+}
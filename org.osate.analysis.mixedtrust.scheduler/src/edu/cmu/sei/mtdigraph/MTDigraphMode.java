@@ -46,6 +46,9 @@ public class MTDigraphMode implements ActiveContainer, Serializable {
 
     public void setActive(boolean a){
         active = a;
+        for (MTTaskGraph g:taskset){
+            g.modified();
+        }
     }
 
     @Override
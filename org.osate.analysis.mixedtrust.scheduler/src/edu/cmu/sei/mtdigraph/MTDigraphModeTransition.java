@@ -67,6 +67,9 @@ public class MTDigraphModeTransition implements ActiveContainer, Serializable {
 
     public void setActive(boolean a){
         active = a;
+        for (MTTaskGraph g:taskTransitions){
+            g.modified();
+        }
     }
 
     @Override
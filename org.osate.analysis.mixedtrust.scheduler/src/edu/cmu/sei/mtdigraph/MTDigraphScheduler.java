@@ -30,23 +30,46 @@ package edu.cmu.sei.mtdigraph;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ToIntFunction;
 
+import edu.cmu.sei.mtzsrm.IdAllocator;
 import edu.cmu.sei.mtzsrm.LayeredTrustExactScheduler;
 
 public class MTDigraphScheduler {
 	TreeSet<MTTaskGraph> taskset = new TreeSet<MTTaskGraph>();
 	long largestBlocking=0;
 
-	public static ArrayList<String> trace=new ArrayList<String>();
+	// scratch, trace and debugging state of this scheduler's analyses
+	AnalysisContext context = new AnalysisContext(debugSettings);
 
-	public static String traceToString(){
-		String r="";
-		for (String s:trace){
-			r+=s+"\n";
-		}
-		return r;
+	public AnalysisContext getContext(){
+		return context;
+	}
+
+	// analyzes the modes and transitions of a modal system, in the calling thread if null
+	ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	/**
+	 * Pool analyzing the modes and transitions of the modal systems concurrently, or
+	 * null to analyze them in the calling thread
+	 */
+	public void setPool(ForkJoinPool p){
+		pool = p;
+	}
+
+	public ForkJoinPool getPool(){
+		return pool;
+	}
+
+	public String traceToString(){
+		return context.traceToString();
 	}
 
 	public TreeSet<MTTaskGraph> getTaskset(){
@@ -58,6 +81,10 @@ public class MTDigraphScheduler {
 	}
 
 	public long getNonPreemptibleBlocking(MTTaskGraph gvictim, MTTaskNode nvictim){
+		return getNonPreemptibleBlocking(context, gvictim, nvictim);
+	}
+
+	public long getNonPreemptibleBlocking(AnalysisContext ctx, MTTaskGraph gvictim, MTTaskNode nvictim){
 		long b=0,tmpb=0;
 		for (MTTaskGraph og: taskset){
 			// we will check if isActive at the node level
@@ -67,11 +94,11 @@ public class MTDigraphScheduler {
 			//if (!og.isActive())
 			//	continue;
 
-			if (nvictim.parentGraphs.contains(og)) {
+			if (ctx.isParent(og, nvictim)) {
 				continue;
 			}
 
-			tmpb=og.getNonPreemptiveBlocking(nvictim);
+			tmpb=og.getNonPreemptiveBlocking(ctx, nvictim);
 			if (tmpb>b) {
 				b=tmpb;
 			}
@@ -97,8 +124,105 @@ public class MTDigraphScheduler {
 		}
 	}
 
+	/**
+	 * Response times of the victims of a graph analyzed in one mode or transition,
+	 * in the order they are analyzed, up to the first victim that is not schedulable
+	 */
+	static final class GraphResponseTimes {
+		final MTTaskGraph graph;
+
+		final ArrayList<MTTaskNode> nodes = new ArrayList<MTTaskNode>();
+
+		final ArrayList<Long> responseTimes = new ArrayList<Long>();
+
+		boolean schedulable = true;
+
+		GraphResponseTimes(MTTaskGraph g){
+			graph = g;
+		}
+
+		void apply(){
+			for (int i=0;i<nodes.size();i++){
+				nodes.get(i).setResponseTime(responseTimes.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Response times of the hypertasks (or the guest tasks) of graphs active in ctx,
+	 * without modifying the model. The analysis stops at the first graph that is not
+	 * schedulable.
+	 */
+	ArrayList<GraphResponseTimes> analyzeContainer(AnalysisContext ctx, ArrayList<MTTaskGraph> graphs, boolean hypertasks){
+		var results = new ArrayList<GraphResponseTimes>();
+		for (MTTaskGraph g:graphs){
+			var result = new GraphResponseTimes(g);
+			results.add(result);
+			for (MTTaskNode n:g.nodes){
+				if (n.isPreemptible() == hypertasks) {
+					continue;
+				}
+				if (!ctx.isActive(n)) {
+					continue;
+				}
+				long r = getMTNodeResponseTime(ctx, g, n);
+				if (r < 0) {
+					result.schedulable = false;
+					return results;
+				}
+				result.nodes.add(n);
+				result.responseTimes.add(r);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Analyzes the graphs of each container with its view (see analyzeContainer).
+	 * The containers are analyzed on the pool, each with its own context, unless
+	 * there is no pool or this scheduler is debugging or tracing, which then
+	 * analyzes them in order with its context, stopping at the first one that is not
+	 * schedulable.
+	 */
+	ArrayList<ArrayList<GraphResponseTimes>> analyzeContainers(ActivityView[] views, ArrayList<ArrayList<MTTaskGraph>> graphs, boolean hypertasks){
+		var results = new ArrayList<ArrayList<GraphResponseTimes>>();
+		if (pool == null || context.isDebugging() || context.isTracing()) {
+			for (int c=0;c<views.length;c++){
+				context.setActivity(views[c]);
+				var container = analyzeContainer(context, graphs.get(c), hypertasks);
+				results.add(container);
+				if (!container.isEmpty() && !container.get(container.size() - 1).schedulable) {
+					break;
+				}
+			}
+			context.setActivity(null);
+			return results;
+		}
+		var tasks = new ArrayList<ForkJoinTask<ArrayList<GraphResponseTimes>>>();
+		for (int c=0;c<views.length;c++){
+			ActivityView view = views[c];
+			ArrayList<MTTaskGraph> containerGraphs = graphs.get(c);
+			tasks.add(pool.submit(() -> {
+				var ctx = new AnalysisContext(context);
+				ctx.setActivity(view);
+				return analyzeContainer(ctx, containerGraphs, hypertasks);
+			}));
+		}
+		for (var task:tasks){
+			results.add(task.join());
+		}
+		return results;
+	}
+
+	/**
+	 * Schedulability of the modal system s. The modes and transitions are analyzed
+	 * with activity views instead of toggling their active flags, which are left
+	 * inactive, and concurrently on the pool of this scheduler (see
+	 * {@link #setPool(ForkJoinPool)}). The response times and deadlines are set in
+	 * the same order as a sequential analysis.
+	 */
 	public boolean isMTModalSystemSchedulable(MTDigraphModalSystem s){
-		trace.clear();
+		context.clearTrace();
 		taskset.clear();
 
 		// start with deadline monotonic priority assignment
@@ -142,36 +266,28 @@ public class MTDigraphScheduler {
 		// to preserve the minimumDeadline
 		var maxResponseTime = new HashMap<MTTaskNode,Long> ();
 
-		// explore all modes hypertasks.
+		// the modes and transitions are analyzed one at a time, each with a view where
+		// only it is active
+		var containers = new ArrayList<ActiveContainer>();
+		var containerGraphs = new ArrayList<ArrayList<MTTaskGraph>>();
 		for (MTDigraphMode m:s.getModes()) {
-			m.setActive(true);
-			for (MTTaskGraph g:m.getTaskset()){
-				if (!isHTSchedulable(g)){
-					return false;
-				}
-				for (MTTaskNode n:g.getNodes()){
-					if (n.isPreemptible()) {
-						continue;
-					}
-					Long r = maxResponseTime.get(n);
-					if (r == null){
-						maxResponseTime.put(n,n.getResponseTime());
-					} else if(r < n.getResponseTime()) {
-						maxResponseTime.put(n,n.getResponseTime());
-					}
-				}
-			}
-			m.setActive(false);
+			containers.add(m);
+			containerGraphs.add(m.getTaskset());
 		}
-
 		for (MTDigraphModeTransition t:s.getSystemTransitions()) {
-			t.setActive(true);
+			containers.add(t);
+			containerGraphs.add(t.getTaskTransitions());
+		}
+		ActivityView[] views = ActivityView.ofEach(taskset, containers);
 
-			for (MTTaskGraph g:t.getTaskTransitions()){
-				if (!isHTSchedulable(g)) {
+		// explore all modes and transitions hypertasks.
+		for (var container:analyzeContainers(views, containerGraphs, true)) {
+			for (GraphResponseTimes result:container) {
+				result.apply();
+				if (!result.schedulable) {
 					return false;
 				}
-				for (MTTaskNode n:g.getNodes()){
+				for (MTTaskNode n:result.graph.getNodes()){
 					if (n.isPreemptible()) {
 						continue;
 					}
@@ -183,7 +299,6 @@ public class MTDigraphScheduler {
 					}
 				}
 			}
-			t.setActive(false);
 		}
 
 		// now i have the maximum R for all nodes
@@ -213,7 +328,10 @@ public class MTDigraphScheduler {
 
 		// now it is necessary to find the maximum response time between the source HT and the transitioning HT
 
-		var adjustedDeadlineNodes = new ArrayList<MTTaskNode>();
+		// nodes with adjusted deadlines, as a bitset of dense node indices
+		var nodeIndices = new IdentityHashMap<MTTaskNode, Integer>();
+		ToIntFunction<MTTaskNode> nodeIndex = n -> nodeIndices.computeIfAbsent(n, k -> nodeIndices.size());
+		var adjustedDeadlineNodes = new BitSet();
 		for (MTDigraphModeTransition t:s.getSystemTransitions()) {
 			for (MTTaskGraph g : t.getTaskTransitions()) {
 				for (MTTaskNode tHT : g.getNodes()) {
@@ -245,9 +363,9 @@ public class MTDigraphScheduler {
 							inE.setInterarrival(sGT.getEnforcementDeadline());
 							sGT.getMtPartnerEdge().setInterarrival(sGT.getEnforcementDeadline());
 
-							adjustedDeadlineNodes.add(tHT);
-							adjustedDeadlineNodes.add(sHT);
-							adjustedDeadlineNodes.add(sGT);
+							adjustedDeadlineNodes.set(nodeIndex.applyAsInt(tHT));
+							adjustedDeadlineNodes.set(nodeIndex.applyAsInt(sHT));
+							adjustedDeadlineNodes.set(nodeIndex.applyAsInt(sGT));
 						}
 					}
 				}
@@ -260,8 +378,8 @@ public class MTDigraphScheduler {
 					if (ht.isPreemptible()) {
 						continue;
 					}
-					if (!adjustedDeadlineNodes.contains(ht)){
-						adjustedDeadlineNodes.add(ht);
+					if (!adjustedDeadlineNodes.get(nodeIndex.applyAsInt(ht))){
+						adjustedDeadlineNodes.set(nodeIndex.applyAsInt(ht));
 						if (ht.getMtPartnerEdge() != null){
 							// get nodes and edges
 							MTTaskEdge ht2gtEdge = ht.getMtPartnerEdge();
@@ -279,29 +397,16 @@ public class MTDigraphScheduler {
 			}
 		}
 
-					// now we are ready to test the schedulability of all GTs
-
-		for (MTDigraphMode m:s.getModes()) {
-			m.setActive(true);
-			for (MTTaskGraph g:m.getTaskset()){
-				if (!isGTSchedulable(g)){
+		// now we are ready to test the schedulability of all GTs
+		for (var container:analyzeContainers(views, containerGraphs, false)) {
+			for (GraphResponseTimes result:container) {
+				result.apply();
+				if (!result.schedulable) {
 					return false;
 				}
 			}
-			m.setActive(false);
 		}
 
-		for (MTDigraphModeTransition t:s.getSystemTransitions()) {
-			t.setActive(true);
-			for (MTTaskGraph g:t.getTaskTransitions()){
-				if (!isGTSchedulable(g)) {
-					return false;
-				}
-			}
-			t.setActive(false);
-		}
-
-
 		return true;
 	}
 
@@ -309,7 +414,7 @@ public class MTDigraphScheduler {
 	public boolean isMTModalSystemSchedulableOld(MTDigraphModalSystem s){
 
 
-		trace.clear();
+		context.clearTrace();
 		taskset.clear();
 
 		// Given that we now have nodes that may belong to more than one graph, e.g., both to a mode
@@ -536,47 +641,84 @@ public class MTDigraphScheduler {
 		return true;
 	}
 
-	public static ArrayList<MTTaskNode> accounted=new ArrayList<MTTaskNode>();
-
 	public boolean isMTNodeSchedulable(MTTaskGraph g, MTTaskNode n) {
+		return isMTNodeSchedulable(context, g, n);
+	}
+
+	/**
+	 * Schedulability of the victim node n using the scratch state of ctx, setting
+	 * its response time if it is schedulable.
+	 */
+	public boolean isMTNodeSchedulable(AnalysisContext ctx, MTTaskGraph g, MTTaskNode n) {
+		long r = getMTNodeResponseTime(ctx, g, n);
+		if (r < 0) {
+			return false;
+		}
+		n.setResponseTime(r);
+		return true;
+	}
+
+	/**
+	 * Response time of the victim node n using the scratch state of ctx, or -1 if it
+	 * is not schedulable. The model is not modified, hence victims analyzed with
+	 * different contexts can be analyzed concurrently as long as the task set and
+	 * the nodes are not modified.
+	 */
+	public long getMTNodeResponseTime(AnalysisContext ctx, MTTaskGraph g, MTTaskNode n) {
 		long rp = 0, r = n.getWCET(), blocking;
 
+		// the graphs may have changed since the last victim
+		ctx.clearRequestBounds();
+
 		while (r != rp && rp <= n.getDeadline()) {
 			r = rp;
-			MTDigraphScheduler.trace.clear();
+			ctx.clearTrace();
 			// if it is preemptible we check for the completion
 			// otherwise we check for the starting time
 			if (n.isPreemptible()) {
 				rp = n.getWCET();
 			} else {
-				blocking = getNonPreemptibleBlocking(g, n);
+				blocking = getNonPreemptibleBlocking(ctx, g, n);
 				rp=blocking;
 			}
 
-			accounted.clear();
+			ctx.clearAccounted();
 			for (MTTaskGraph o : taskset) {
 				// we will check whether a node is active instead of the full graph
 				// to allow transitioning HT to be active even if its graph is
 				// inactive
 				//if (!o.isActive())
 				//	continue;
-				if (n.parentGraphs.contains(o)) {
+				if (ctx.isParent(o, n)) {
 					continue;
 				}
 
 
-				var lpath = new ArrayList<MTTaskEdge>();
-				rp += o.getPrefixedRequestBound(n, r, lpath, rp);
+				// the path is only logged, and only rebuilt from the witness if the deadline
+				// is missed; without it the request bound function is used
+				RequestBoundWitness witness = null;
+				if (ctx.isDebugging()) {
+					witness = o.getPrefixedRequestBoundWitness(ctx, n, r, rp);
+					rp += witness.getRequest();
+				} else {
+					rp += o.getPrefixedRequestBound(ctx, n, r, null, rp);
+				}
 
-				accounted.addAll(o.getNodes());
+				ctx.addAccounted(o);
 
-				// debugging
-				MTDigraphScheduler.logDebugMessage(rp + n.getWCET() > n.getDeadline() && !n.isPreemptible() || rp  > n.getDeadline(),
-						new LogBuilder(new Object[]{r,rp,lpath},"sched-path") {
+				// debugging, skipped before building the log messages
+				if (!ctx.isDebugging()) {
+					// the requests only grow, hence the victim already misses its deadline
+					if (!ctx.isTracing() && (rp > n.getDeadline() || !n.isPreemptible() && rp + n.getWCET() > n.getDeadline())) {
+						return -1;
+					}
+					continue;
+				}
+				ctx.logDebugMessage(rp + n.getWCET() > n.getDeadline() && !n.isPreemptible() || rp  > n.getDeadline(),
+						new LogBuilder(new Object[]{r,rp,witness},"sched-path") {
 							@Override
 							public String buildLog() {
-								@SuppressWarnings("unchecked")
-								var lpath = (ArrayList<MTTaskEdge>) parms[2];
+								var lpath = ((RequestBoundWitness) parms[2]).getPath();
 								String str="";
 								boolean first=true;
 								for (MTTaskEdge e:lpath){
@@ -590,12 +732,11 @@ public class MTDigraphScheduler {
 								return str;
 							}
 						});
-				MTDigraphScheduler.logDebugMessage(rp > n.getDeadline() && n.isPreemptible(),
-						new LogBuilder(new Object[]{r,rp,lpath},"sched") {
+				ctx.logDebugMessage(rp > n.getDeadline() && n.isPreemptible(),
+						new LogBuilder(new Object[]{r,rp,witness},"sched") {
 							@Override
 							public String buildLog() {
-								@SuppressWarnings("unchecked")
-								var lpath = (ArrayList<MTTaskEdge>)parms[2];
+								var lpath = ((RequestBoundWitness) parms[2]).getPath();
 								String str = "";
 								boolean first = true;
 								str += "victim(" + n + "),rf(" + parms[0] + "):" + parms[1] + " > deadline(" + n.getDeadline() + ")";
@@ -621,14 +762,12 @@ public class MTDigraphScheduler {
 				rp += n.getWCET();
 			}
 			if (rp > n.getDeadline()) {
-				return false;
-			} else {
-				n.setResponseTime(rp);
+				return -1;
 			}
 		} else {
-			return false;
+			return -1;
 		}
-		return true;
+		return rp;
 	}
 
 	public boolean isSchedulable(MTTaskGraph g){
@@ -714,34 +853,38 @@ public class MTDigraphScheduler {
 		return unscheduled.isEmpty();
 	}
 
-	static boolean debugging = false;
+	// debugging options copied into the context of each new scheduler
+	// and used by the generators and experiments
+	static final AnalysisContext debugSettings = new AnalysisContext();
 
 	static int debugLevel=0;
 
-	static ArrayList<String> debugCategories =new ArrayList<String>();
-
 	public static void setDebugging(boolean d){
-		debugging = d;
+		debugSettings.setDebugging(d);
 	}
 
 	public static void addDebugCategory(String cls){
-		debugCategories.add(cls);
+		debugSettings.addDebugCategory(cls);
 	}
 
 	public static void clearDebugCategories(){
-		debugCategories.clear();
+		debugSettings.clearDebugCategories();
 	}
 
 	public static boolean isDebugging(){
-		return debugging;
+		return debugSettings.isDebugging();
+	}
+
+	/**
+	 * Enables the request bound trace of the schedulers created afterwards, e.g.,
+	 * to print it in the debugging messages
+	 */
+	public static void setTracing(boolean t){
+		debugSettings.setTracing(t);
 	}
 
 	public static void logDebugMessage(boolean condition, LogBuilder builder){
-		if (isDebugging()){
-			if (condition && debugCategories.contains(builder.getCategory())){
-				System.out.println(builder.buildLog());
-			}
-		}
+		debugSettings.logDebugMessage(condition, builder);
 	}
 
 	public static void test1(){
@@ -962,6 +1105,96 @@ public class MTDigraphScheduler {
 
 	}
 
+	// generates and analyzes the seed-th modal system within its own id scope
+	@SuppressWarnings("try")
+	static String analyzeRandomSystem(int seed){
+		try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+			var gen = new MTDigraphTaskGenerator();
+			gen.rand = new Random(seed);
+			var system = gen.createModalSystem(0.6, 4, 0, 2, 1, 100, 800, 0.2);
+			var sched = new MTDigraphScheduler();
+			String r = seed+":"+sched.isMTModalSystemSchedulable(system);
+			for (var m:system.getModes()){
+				for (var g:m.getTaskset()){
+					for (var n:g.getNodes()){
+						r += " "+n.getResponseTime();
+					}
+				}
+			}
+			return r;
+		}
+	}
+
+	public static void testConcurrentModalSystems() throws InterruptedException {
+		int numSystems=4;
+		String[] sequential = new String[numSystems];
+		String[] concurrent = new String[numSystems];
+		for (int i=0;i<numSystems;i++){
+			sequential[i] = analyzeRandomSystem(i);
+		}
+		Thread[] threads = new Thread[numSystems];
+		for (int i=0;i<numSystems;i++){
+			final int index = i;
+			threads[i] = new Thread(() -> concurrent[index] = analyzeRandomSystem(index));
+			threads[i].start();
+		}
+		for (Thread t:threads){
+			t.join();
+		}
+		for (int i=0;i<numSystems;i++){
+			System.out.println(concurrent[i]+(concurrent[i].equals(sequential[i]) ? "" : " MISMATCH("+sequential[i]+")"));
+		}
+		// a mode without graphs, analyzed in order and on the pool
+		String inOrder = analyzeSystemWithEmptyMode(false);
+		String onPool = analyzeSystemWithEmptyMode(true);
+		System.out.println("empty mode: "+onPool+(onPool.equals(inOrder) ? "" : " MISMATCH("+inOrder+")"));
+	}
+
+	@SuppressWarnings("try")
+	static String analyzeSystemWithEmptyMode(boolean pool){
+		try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+			var gen = new MTDigraphTaskGenerator();
+			gen.rand = new Random(0);
+			var system = gen.createModalSystem(0.6, 4, 0, 2, 1, 100, 800, 0.2);
+			system.addMode(new MTDigraphMode());
+			var sched = new MTDigraphScheduler();
+			if (!pool) {
+				sched.setPool(null);
+			}
+			return ""+sched.isMTModalSystemSchedulable(system);
+		}
+	}
+
+	/**
+	 * Compares the analysis time of the same random modal systems with the
+	 * request bound trace disabled and enabled
+	 */
+	@SuppressWarnings("try")
+	public static void tracingOverhead(int numSystems, int rounds){
+		long[] nanos = new long[2];
+		long events = 0;
+		for (int round=0;round<rounds;round++){
+			for (int tracing=0;tracing<2;tracing++){
+				for (int i=0;i<numSystems;i++){
+					try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+						var gen = new MTDigraphTaskGenerator();
+						gen.rand = new Random(i);
+						var system = gen.createModalSystem(0.7, 6, 0, 2, 1, 100, 1000, 0.2);
+						var sched = new MTDigraphScheduler();
+						sched.getContext().setTracing(tracing == 1);
+						long start = System.nanoTime();
+						sched.isMTModalSystemSchedulable(system);
+						nanos[tracing] += System.nanoTime() - start;
+						events += sched.getContext().getTraceSize();
+					}
+				}
+			}
+		}
+		long analyses = (long) numSystems * rounds;
+		System.out.println("tracing disabled: "+nanos[0]/analyses/1000+" us/system");
+		System.out.println("tracing enabled:  "+nanos[1]/analyses/1000+" us/system, "+events/analyses+" events/system in the last victim iteration");
+	}
+
 	public static void increasingUtilization(FileWriter writer, FileWriter timeWriter) throws IOException {
 		MTDigraphScheduler.setDebugging(false);
 
@@ -1154,11 +1387,13 @@ public class MTDigraphScheduler {
 	}
 
 
-	public static void main(String [] args){
+	public static void main(String [] args) throws InterruptedException {
 		//dtest1();
 		//testMTSample1();
 		//testRTJ2015Fig14();
 		schedTest1();;
+		testConcurrentModalSystems();
+		//tracingOverhead(200, 5);
 //		FileWriter writer=null;
 //		FileWriter timeWriter=null;
 //		try {
@@ -29,18 +29,21 @@ package edu.cmu.sei.mtdigraph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.TreeSet;
 
+import edu.cmu.sei.mtzsrm.IdAllocator;
+
 public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Serializable {
 	/**
 	 * Eclipse-generated id to get rid of warning message.
 	 */
 	private static final long serialVersionUID = 4014183750174964874L;
 
-	static long uniqueIdNext=0;
-
-	long uniqueId = uniqueIdNext++;
+	// from the allocator of the creating thread, see IdAllocator
+	long uniqueId = IdAllocator.current().nextId(IdAllocator.Sequence.TASK_GRAPH);
 
 	private ArrayList<ActiveContainer> parentModes=new ArrayList<ActiveContainer>();
 
@@ -53,6 +56,7 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 
 	public void setPriority(int p){
 		priority = p;
+		modified();
 	}
 
 	@Override
@@ -66,7 +70,7 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		if (o.getUniqueId() == getUniqueId()) {
 			return 0;
 		} else if (o.getPriority() == getPriority()) {
-			return (int)(o.getUniqueId() - getUniqueId());
+			return Long.compare(o.getUniqueId(), getUniqueId());
 		} else if (o.getPriority() < getPriority()) {
 			return 1;
 		} else {
@@ -100,8 +104,31 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		name = n;
 	}
 
+	// modifications of the graph, its nodes and their activity, see getModCount()
+	long modCount = 0;
+
+	/**
+	 * Number of modifications of the graph that can change its analysis, i.e., the
+	 * nodes and edges added, the priorities, deadlines, preemptibility and parent
+	 * graphs of its nodes and the activity of the modes of their graphs
+	 */
+	public long getModCount(){
+		return modCount;
+	}
+
+	/**
+	 * Counts a change of the activity or the priority of this graph, which also
+	 * changes the activity or the priority of its nodes in their other graphs
+	 */
+	void modified(){
+		modCount++;
+		for (MTTaskNode n:nodes){
+			n.modified();
+		}
+	}
+
 	public void addNode(MTTaskNode n){
-		maxJitter = -1;
+		modCount++;
 		nodes.add(n);
 		n.addParentGraph(this);
 	}
@@ -109,8 +136,15 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 	public ArrayList<MTTaskNode> getNodes(){
 		return nodes;
 	}
+
+	/**
+	 * Snapshot of this graph for the request bound engines
+	 */
+	CompiledTaskGraph compile(){
+		return new CompiledTaskGraph(this);
+	}
 	public void addEdge(MTTaskEdge e){
-		maxJitter = -1;
+		modCount++;
 		ArrayList<MTTaskEdge> succEdges = nodeToSuccessorEdges.get(e.getSourceNode());
 		if (succEdges == null){
 			succEdges = new ArrayList<MTTaskEdge>();
@@ -129,137 +163,258 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 	}
 
 	public long getMaxRequestBound(boolean inclusive, MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path) {
-		long l = 0;
-		long r = 0;
-		MTTaskEdge nextEdge = null;
-		ArrayList<MTTaskEdge> newpath = null;
-		var succs = nodeToSuccessorEdges.get(n);
-		if (succs != null){
-			for (MTTaskEdge e : succs) {
-				// skip inactive edges
-				if (!e.isActive()) {
-					continue;
-				}
-
-				// still within interval?
+		return getMaxRequestBound(new AnalysisContext(), inclusive, victim, n, interval, path);
+	}
 
-				// TODO: checking for an inclusive interval is an overapproximation
-				// if the tasks have only preemptible nodes. However, it is not straightforward
-				// to figure out the combination that will allow an exclusive interval
-				if ( e.getInterarrival() < interval || (inclusive && e.getInterarrival() == interval)){
-					//System.out.println("Interval("+interval+"): Traversing: "+e.getSourceNode().name+"-["+e.getInterarrival()+"]->"+e.getTargetNode().name);
-					ArrayList<MTTaskEdge> tmppath = null;
-					if (path != null) {
-						tmppath = new ArrayList<MTTaskEdge>();
-					}
-					r = getMaxRequestBound(inclusive, victim, e.getTargetNode(), interval - e.getInterarrival(), tmppath);
-					if (r > l) {
-						l = r;
-						nextEdge = e;
-						newpath = tmppath;
-					}
-				} else {
-					//System.out.println("\t UNREACHABLE edge("+e.getSourceNode().name+"->"+e.getTargetNode().name+").Interarrival("+e.getInterarrival()+") > interval("+interval+")");
-				}
+	/**
+	 * Maximum request of the paths starting at n within interval. The nodes
+	 * accounted in ctx do not add to the request and, if ctx is tracing, the counted
+	 * ones are traced as REQUEST events.
+	 *
+	 * The bound of each node explored is memoized in ctx for the victim with the
+	 * range of intervals admitting the same edges, so the paths sharing a suffix are
+	 * only explored once and the next queries for the victim (e.g., the next
+	 * iterations of its response time) reuse them. The path, if requested, is
+	 * rebuilt from the first edge memoized with each bound. The search runs on the
+	 * graph compiled in ctx (see {@link CompiledTaskGraph}).
+	 */
+	public long getMaxRequestBound(AnalysisContext ctx, boolean inclusive, MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path) {
+		RequestBoundMemo memo = ctx.getRequestBoundMemo(this, victim, inclusive);
+		int i = memo.graph.indexOf(n);
+		if (i < 0) {
+			// a node without edges in this graph only requests itself
+			if (!CompiledTaskGraph.interferes(ctx, victim, n)) {
+				return 0;
+			}
+			if (ctx.isTracing()) {
+				ctx.trace(AnalysisContext.TraceEvent.REQUEST, victim, this, n, interval, n.getWCET());
 			}
+			return n.getWCET();
 		}
-
-		if (nextEdge != null && path != null){
-			path.add(nextEdge);
-			path.addAll(newpath);
+		long value = getMaxRequestBound(ctx, memo, i, interval);
+		if (path != null) {
+			appendPath(ctx, memo, i, interval, path);
 		}
-		if (n.getPriority() > victim.getPriority() || !n.isActive()){
-			// victim node has higher priority hence the execution is zero
-			return l;
-		} else {
-			if (victim.hasCommonParent(n) || MTDigraphScheduler.accounted.contains(n)) {
-				//MTDigraphScheduler.trace.add("vitim("+victim+").RF(t:"+interval+",w/o g("+this+").node("+n+"),rf:"+l+")");
-				return l;
+		return value;
+	}
+
+	/**
+	 * Appends to path the edges of the path with the bound of node n within
+	 * interval, following the first edge memoized with each bound. The bound of a
+	 * chained node is not memoized, and its path goes on to its successor as long
+	 * as the successor adds to the request.
+	 */
+	void appendPath(AnalysisContext ctx, RequestBoundMemo memo, int n, long interval, ArrayList<MTTaskEdge> path) {
+		CompiledTaskGraph cg = memo.graph;
+		long value = getMaxRequestBound(ctx, memo, n, interval);
+		while (true) {
+			long demand = memo.bounds[n].demand;
+			int k = -1;
+			if (memo.chained[n]) {
+				// the edge to the successor, if the successor adds to the request
+				for (int e=cg.successorStart[n];e<cg.successorStart[n+1];e++){
+					if (memo.activeEdges[e] && value > demand) {
+						k = e;
+					}
+				}
 			} else {
-				MTDigraphScheduler.trace.add("vitim("+victim+").RF(t:"+interval+",g("+this+").node("+n+"),rf:"+(l+n.getWCET())+")");
-				return l + n.getWCET();
+				RequestBoundMemo.NodeBounds nb = memo.bounds[n];
+				k = nb.next[nb.find(interval)];
+			}
+			if (k < 0) {
+				return;
+			}
+			path.add(cg.edges[k]);
+			interval -= cg.interarrival[k];
+			value -= demand;
+			n = cg.successorTarget[k];
+			if (!memo.chained[n]) {
+				// memoize the suffix if the bound was found between two memoized ones
+				getMaxRequestBound(ctx, memo, n, interval);
 			}
 		}
 	}
 
+	/**
+	 * Bound of node n within interval, with its range in memo.lo and memo.hi. The
+	 * paths are explored depth first on the frames of the stack of ctx instead of
+	 * recursing, since they are as deep as the number of edges fitting in the
+	 * interval. A frame returns its bound and range to the frame below, which
+	 * then explores the next edge. The bounds of the chained nodes are not
+	 * memoized unless ctx is tracing.
+	 */
+	long getMaxRequestBound(AnalysisContext ctx, RequestBoundMemo memo, int n, long interval) {
+		RequestBoundMemo.NodeBounds nb = memo.bounds[n];
+		int i = nb.find(interval);
+		if (i >= 0) {
+			memo.lo = nb.lo[i];
+			memo.hi = nb.hi[i];
+			return nb.values[i];
+		}
+		CompiledTaskGraph cg = memo.graph;
+		// the trace records every node visited once, hence nothing is pruned and
+		// every bound is memoized
+		boolean tracing = ctx.isTracing();
+		boolean prune = !tracing;
+		if (prune && !memo.densities) {
+			memo.computeDensities();
+		}
+		TraversalStack s = ctx.traversalStack;
+		int depth = 0;
+		s.enter(depth, n, interval, cg.successorStart[n]);
+		while (true) {
+			n = s.node[depth];
+			interval = s.interval[depth];
+			long l = s.best[depth];
+			int nextEdge = s.next[depth];
+			// range of intervals admitting the same edges
+			long lo = s.lo[depth];
+			long hi = s.hi[depth];
+			int k = s.edge[depth];
+			for (;k<cg.successorStart[n+1];k++){
+				// skip inactive edges
+				if (!memo.activeEdges[k]) {
+					continue;
+				}
+				long ia = cg.interarrival[k];
+				int t = cg.successorTarget[k];
 
-	// TODO: eliminate this method and substitute for the common one that passes a boolean inclusive parameter above.
-	public long getMaxRequestBoundInclusive(MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path) {
-		long l = 0;
-		long r = 0;
-		MTTaskEdge nextEdge = null;
-		ArrayList<MTTaskEdge> newpath = null;
-		var succs = nodeToSuccessorEdges.get(n);
-		if (succs != null){
-			for (MTTaskEdge e : succs) {
 				// still within interval?
 
 				// TODO: checking for an inclusive interval is an overapproximation
 				// if the tasks have only preemptible nodes. However, it is not straightforward
 				// to figure out the combination that will allow an exclusive interval
-				if (e.getInterarrival() <= interval) {
-					//System.out.println("Interval("+interval+"): Traversing: "+e.getSourceNode().name+"-["+e.getInterarrival()+"]->"+e.getTargetNode().name);
-					ArrayList<MTTaskEdge> tmppath = null;
-					if (path != null) {
-						tmppath = new ArrayList<MTTaskEdge>();
+				long reach = memo.inclusive ? ia : ia + 1;
+				if (interval >= reach){
+					RequestBoundMemo.NodeBounds tb = memo.bounds[t];
+					int j = tb.find(interval - ia);
+					if (j < 0) {
+						if (prune && !tb.exceeds(interval - ia, l)) {
+							// cannot beat the best successor as long as its bound does not
+							hi = Math.min(hi, RequestBoundMemo.shift(tb.boundedUntil(interval - ia, l), ia));
+							continue;
+						}
+						break;
 					}
-					r = getMaxRequestBoundInclusive(victim, e.getTargetNode(), interval - e.getInterarrival(), tmppath);
-					if (r > l) {
-						l = r;
-						nextEdge = e;
-						newpath = tmppath;
+					lo = Math.max(lo, Math.max(reach, RequestBoundMemo.shift(tb.lo[j], ia)));
+					hi = Math.min(hi, RequestBoundMemo.shift(tb.hi[j], ia));
+					if (tb.values[j] > l) {
+						l = tb.values[j];
+						nextEdge = k;
 					}
 				} else {
-					//System.out.println("\t UNREACHABLE edge("+e.getSourceNode().name+"->"+e.getTargetNode().name+").Interarrival("+e.getInterarrival()+") > interval("+interval+")");
+					hi = Math.min(hi, reach);
 				}
 			}
-		}
+			if (k < cg.successorStart[n+1]) {
+				// explore the successor of edge k first
+				s.edge[depth] = k;
+				s.best[depth] = l;
+				s.next[depth] = nextEdge;
+				s.lo[depth] = lo;
+				s.hi[depth] = hi;
+				int t = cg.successorTarget[k];
+				depth++;
+				s.enter(depth, t, interval - cg.interarrival[k], cg.successorStart[t]);
+				continue;
+			}
 
-		if (nextEdge != null && path != null){
-			path.add(nextEdge);
-			path.addAll(newpath);
-		}
-		if (n.getPriority() > victim.getPriority()){
-			// victim node has higher priority hence the execution is zero
-			return l;
-		} else {
-			return l + n.getWCET();
+			// victim node has higher priority, or already accounted, hence the execution is zero
+			if (memo.interfering[n]) {
+				if (ctx.isTracing()) {
+					ctx.trace(AnalysisContext.TraceEvent.REQUEST, memo.victim, this, cg.nodes[n], interval, l + cg.wcet[n]);
+				}
+				l += cg.wcet[n];
+			}
+			if (tracing || !memo.chained[n]) {
+				nb = memo.bounds[n];
+				i = nb.store(interval, lo, hi, l, nextEdge);
+				lo = nb.lo[i];
+				hi = nb.hi[i];
+			}
+			if (depth == 0) {
+				memo.lo = lo;
+				memo.hi = hi;
+				return l;
+			}
+
+			// the bound of the successor of the edge explored by the frame below
+			depth--;
+			k = s.edge[depth];
+			long ia = cg.interarrival[k];
+			s.lo[depth] = Math.max(s.lo[depth], Math.max(memo.inclusive ? ia : ia + 1, RequestBoundMemo.shift(lo, ia)));
+			s.hi[depth] = Math.min(s.hi[depth], RequestBoundMemo.shift(hi, ia));
+			if (l > s.best[depth]) {
+				s.best[depth] = l;
+				s.next[depth] = k;
+			}
+			s.edge[depth] = k + 1;
 		}
 	}
 
+	// TODO: eliminate this method and substitute for the common one that passes a boolean inclusive parameter above.
+	public long getMaxRequestBoundInclusive(MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path) {
+		return enumerateRequestBound(compile(), new TraversalStack(), true, victim, n, interval, path);
+	}
+
 	// TODO: eliminate this method and substitute for the common one that passes a boolean inclusive parameter above.
 	public long getMaxRequestBoundExclusive(MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path){
-		long l=0;
-		long r=0;
-		MTTaskEdge nextEdge=null;
-		ArrayList<MTTaskEdge> newpath=null;
-		for (MTTaskEdge e: nodeToSuccessorEdges.get(n)){
-			// still within interval?
-			if (e.getInterarrival()<interval){
-				//System.out.println("Interval("+interval+"): Traversing: "+e.getSourceNode().name+"-["+e.getInterarrival()+"]->"+e.getTargetNode().name);
-				ArrayList<MTTaskEdge> tmppath = null;
-				if (path != null){
-					tmppath = new ArrayList<MTTaskEdge>();
+		return enumerateRequestBound(compile(), new TraversalStack(), false, victim, n, interval, path);
+	}
+
+	/**
+	 * Maximum request of the paths starting at n within interval, enumerating all of
+	 * them on the frames of s. Every node of a lower or, if inclusive, equal priority
+	 * than the victim adds to the request, and an edge is traversed if its
+	 * interarrival is below, or if inclusive equal to, the interval left. The path,
+	 * if requested, is appended the edges of the first path with the maximum request.
+	 */
+	long enumerateRequestBound(CompiledTaskGraph cg, TraversalStack s, boolean inclusive, MTTaskNode victim, MTTaskNode n, long interval, ArrayList<MTTaskEdge> path){
+		int i = cg.indexOf(n);
+		if (i < 0) {
+			// a node without edges in this graph only requests itself
+			return inclusive ? (n.getPriority() > victim.getPriority() ? 0 : n.getWCET()) : (n.getPriority() < victim.getPriority() ? n.getWCET() : 0);
+		}
+		int priority = victim.getPriority();
+		int depth = 0;
+		s.enter(depth, i, interval, cg.successorStart[i]);
+		while (true) {
+			i = s.node[depth];
+			int k = s.edge[depth];
+			while (k < cg.successorStart[i+1] && (inclusive ? cg.interarrival[k] > s.interval[depth] : cg.interarrival[k] >= s.interval[depth])) {
+				k++;
+			}
+			if (k < cg.successorStart[i+1]) {
+				// explore the successor of edge k first
+				s.edge[depth] = k;
+				int t = cg.successorTarget[k];
+				long left = s.interval[depth] - cg.interarrival[k];
+				depth++;
+				s.enter(depth, t, left, cg.successorStart[t]);
+				continue;
+			}
+
+			long l = s.best[depth];
+			if (inclusive ? cg.priority[i] <= priority : cg.priority[i] < priority) {
+				l += cg.wcet[i];
+			}
+			if (depth == 0) {
+				if (path != null) {
+					for (int p=0;p<s.pathLength[0];p++){
+						path.add(cg.edges[s.pathEdges[s.pathStart[0] + p]]);
+					}
 				}
-				r = getMaxRequestBoundExclusive(victim, e.getTargetNode(), interval - e.getInterarrival(),tmppath);
-				if (r>l){
-					l = r;
-					nextEdge = e;
-					newpath=tmppath;
+				return l;
+			}
+			depth--;
+			k = s.edge[depth];
+			if (l > s.best[depth]) {
+				s.best[depth] = l;
+				if (path != null) {
+					s.prependPath(depth, k);
 				}
-			} else {
-				//System.out.println("\t UNREACHABLE edge("+e.getSourceNode().name+"->"+e.getTargetNode().name+").Interarrival("+e.getInterarrival()+") > interval("+interval+")");
 			}
-		}
-
-		if (nextEdge != null && path != null){
-			path.add(nextEdge);
-			path.addAll(newpath);
-		}
-		if (n.getPriority()<victim.getPriority()) {
-			return l + n.getWCET();
-		} else {
-			return l;
+			s.edge[depth] = k + 1;
 		}
 	}
 
@@ -283,17 +438,28 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		System.out.println(" ---- END PATH ----\n");
 	}
 
-	long maxJitter = -1;
-
 	public long getMaximumJitter(MTTaskNode victim){
-		maxJitter = 0;
+		return getMaximumJitter(new AnalysisContext(), victim);
+	}
+
+	/**
+	 * Maximum jitter of the nodes of this graph with lower priority than victim,
+	 * from the interference terms cached in ctx unless victim shares a parent graph
+	 * with them (see {@link InterferenceTerms})
+	 */
+	public long getMaximumJitter(AnalysisContext ctx, MTTaskNode victim){
+		long maxJitter = 0;
 		MTTaskNode maxJitterNode=null;
-		//if (maxJitter <0){
+		InterferenceTerms terms = ctx.getInterferenceTerms(this);
+		if (!terms.sharesParent(victim)) {
+			maxJitter = terms.getJitter(victim.getPriority());
+			maxJitterNode = terms.getJitterNode(victim.getPriority());
+		} else {
 			for (MTTaskNode node:nodes){
-				if (node.hasCommonParent(victim)) {
+				if (ctx.hasCommonParent(node, victim)) {
 					continue;
 				}
-				if (!node.isActive()) {
+				if (!ctx.isActive(node)) {
 					continue;
 				}
 				if (victim.getPriority() > node.getPriority()) {
@@ -303,14 +469,29 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 					}
 				}
 			}
-		//}
-		if (maxJitterNode != null) {
-			MTDigraphScheduler.trace.add("victim("+victim+").jitter("+maxJitter+","+maxJitterNode+")");
+		}
+		if (maxJitterNode != null && ctx.isTracing()) {
+			ctx.trace(AnalysisContext.TraceEvent.JITTER, victim, this, maxJitterNode, 0, maxJitter);
 		}
 		return maxJitter;
 	}
 
 	public long getNonPreemptiveBlocking(MTTaskNode victim) {
+		return getNonPreemptiveBlocking(new AnalysisContext(), victim);
+	}
+
+	/**
+	 * Largest WCET of the non-preemptible nodes of this graph with higher priority
+	 * than victim, from the interference terms cached in ctx unless victim shares a
+	 * parent graph with them or ctx traces every larger WCET found
+	 */
+	public long getNonPreemptiveBlocking(AnalysisContext ctx, MTTaskNode victim) {
+		if (!ctx.isTracing()) {
+			InterferenceTerms terms = ctx.getInterferenceTerms(this);
+			if (!terms.sharesParent(victim)) {
+				return terms.getBlocking(victim.getPriority());
+			}
+		}
 		long b=0;
 		for (MTTaskNode node : nodes) {
 			// this only apply for the non-preemptible hypertasks
@@ -318,18 +499,20 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 			// a hypertask
 
 			// this can only be tested at the node level not the graph level
-			if (victim.hasCommonParent(node)) {
+			if (ctx.hasCommonParent(victim, node)) {
 				continue;
 			}
 
 			if (node.isPreemptible()) {
 				continue;
 			}
-			if (!node.isActive()) {
+			if (!ctx.isActive(node)) {
 				continue;
 			}
 			if (node.getPriority()>victim.getPriority() && node.getWCET()>b){
-				MTDigraphScheduler.trace.add("vitim("+victim+").block("+node+")");
+				if (ctx.isTracing()) {
+					ctx.trace(AnalysisContext.TraceEvent.BLOCKING, victim, this, node, 0, node.getWCET());
+				}
 				b = node.getWCET();
 			}
 		}
@@ -337,90 +520,164 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 	}
 
 	public long getPrefixedRequestBound(MTTaskNode victim, long interval, ArrayList<MTTaskEdge> path, long currentCummulativeRequest){
-		long maxl=0;
-		ArrayList<MTTaskEdge> maxPath=null;
-		ArrayList<MTTaskEdge>tmpPath=null;
-		@SuppressWarnings("unused")
-		MTTaskNode rootLongest=null;
-		if (path != null) {
-			tmpPath = new ArrayList<MTTaskEdge>();
+		return getPrefixedRequestBound(new AnalysisContext(), victim, interval, path, currentCummulativeRequest);
+	}
+
+	/**
+	 * Maximum request of the paths of this graph interfering with victim within
+	 * interval enlarged with the jitter of the graph. Without a path to return
+	 * or a trace to record, the request is evaluated on the request bound function
+	 * of the graph for victim kept in ctx, whose exploration is extended as the
+	 * intervals of the victim grow (see {@link RequestBoundFunction}). Otherwise,
+	 * the path is rebuilt from the witness of the request.
+	 */
+	public long getPrefixedRequestBound(AnalysisContext ctx, MTTaskNode victim, long interval, ArrayList<MTTaskEdge> path, long currentCummulativeRequest){
+		if (path != null || ctx.isTracing()) {
+			RequestBoundWitness witness = getPrefixedRequestBoundWitness(ctx, victim, interval, currentCummulativeRequest);
+			if (path != null) {
+				path.addAll(witness.getPath());
+			}
+			return witness.getRequest();
 		}
 
 		// Enlarge interval with maximum task-wise jitter
 		// to overapproximate the path prefix interference
-		interval += getMaximumJitter(victim);
+		interval += getMaximumJitter(ctx, victim);
 
 		// make sure that we are not getting interference
 		// from the same parent
-		if (victim.parentGraphs.contains(this)) {
+		if (ctx.isParent(this, victim)) {
 			return 0;
 		}
 
+		RequestBoundFunction f = ctx.getRequestBoundFunction(this, victim, !victim.isPreemptible());
+		if (f == null) {
+			f = getPrefixedRequestBoundFunction(ctx, victim);
+			ctx.putRequestBoundFunction(this, victim, f);
+		}
+		return f.valueAt(interval);
+	}
+
+	/**
+	 * Maximum request of getPrefixedRequestBound, searched from every node of this
+	 * graph, with the first node of the path found. Its path is only rebuilt when
+	 * requested from the witness, e.g., to log a victim that misses its deadline.
+	 * The searches are traced, if ctx is tracing, and logged, if it is debugging.
+	 */
+	public RequestBoundWitness getPrefixedRequestBoundWitness(AnalysisContext ctx, MTTaskNode victim, long interval, long currentCummulativeRequest){
+		long maxl=0;
+		MTTaskNode rootLongest=null;
+
+		// Enlarge interval with maximum task-wise jitter
+		// to overapproximate the path prefix interference
+		interval += getMaximumJitter(ctx, victim);
+
+		// make sure that we are not getting interference
+		// from the same parent
+		if (ctx.isParent(this, victim)) {
+			return new RequestBoundWitness(this, 0, null, -1, interval);
+		}
+
 		for (MTTaskNode node:nodes){
 			long l = 0;
 			if (victim == node) {
 				continue;
 			}
-			if (victim.hasCommonParent(node)) {
+			if (ctx.hasCommonParent(victim, node)) {
 				continue;
 			}
 
 			if (!victim.isPreemptible()) {
-				l = getMaxRequestBound(true, victim, node, interval, tmpPath);
+				l = getMaxRequestBound(ctx, true, victim, node, interval, null);
 			} else {
-				l = getMaxRequestBound(false, victim, node, interval, tmpPath);
+				l = getMaxRequestBound(ctx, false, victim, node, interval, null);
 			}
 
 			if (l>maxl){
-				if (path != null) {
-					maxPath = tmpPath;
-					tmpPath = new ArrayList<MTTaskEdge>();
-				}
+				rootLongest = node;
 				maxl = l;
 			}
 
-			// debugging
-			MTDigraphScheduler.logDebugMessage(currentCummulativeRequest + maxl + victim.getWCET() > victim.getDeadline() && !victim.isPreemptible(),
+			// debugging, skipped before building the log messages
+			if (!ctx.isDebugging()) {
+				continue;
+			}
+			ctx.logDebugMessage(currentCummulativeRequest + maxl + victim.getWCET() > victim.getDeadline() && !victim.isPreemptible(),
 					new LogBuilder(new Object[]{interval,maxl}) {
 						@Override
 						public String buildLog() {
 							String str="";
-							str += MTDigraphScheduler.traceToString();
+							str += ctx.traceToString();
 							str += "victim("+victim+"): cumm("+currentCummulativeRequest+")+rf("+parms[0]+"):"+parms[1]+"C("+victim.getWCET()+")>deadline("+victim.getDeadline()+")\n";
 							return str;
 						}
 					});
 //			if (currentCummulativeRequest+maxl+victim.getWCET() > victim.getDeadline() && !victim.isPreemptible()) {
-//				System.out.print(MTDigraphScheduler.traceToString());
+//				System.out.print(ctx.traceToString());
 //				System.out.println("victim("+victim+"): cumm("+currentCummulativeRequest+")+rf("+interval+"):"+maxl+"C("+victim.getWCET()+")>deadline("+victim.getDeadline()+")\n");
 //				break;
 //			}
 
-			MTDigraphScheduler.logDebugMessage(currentCummulativeRequest + maxl > victim.getDeadline() && victim.isPreemptible(),
+			ctx.logDebugMessage(currentCummulativeRequest + maxl > victim.getDeadline() && victim.isPreemptible(),
 					new LogBuilder(new Object[]{interval,maxl}) {
 						@Override
 						public String buildLog() {
 							String str="";
-							str += MTDigraphScheduler.traceToString();
+							str += ctx.traceToString();
 							str += "victim("+victim+"):cumm("+currentCummulativeRequest+")+rf("+parms[0]+"):"+parms[1]+">deadline("+victim.getDeadline()+")\n";
 							return str;
 						}
 					});
 //			if (currentCummulativeRequest+maxl > victim.getDeadline() && victim.isPreemptible()){
-//				System.out.print(MTDigraphScheduler.traceToString());
+//				System.out.print(ctx.traceToString());
 //				System.out.println("victim("+victim+"):cumm("+currentCummulativeRequest+")+rf("+interval+"):"+maxl+">deadline("+victim.getDeadline()+")\n");
 //				break;
 //			}
 
 		}
 
-		if (path != null && maxPath != null) {
-			path.addAll(maxPath);
+		if (rootLongest == null) {
+			return new RequestBoundWitness(this, 0, null, -1, interval);
 		}
-		return maxl;
+		RequestBoundMemo memo = ctx.getRequestBoundMemo(this, victim, !victim.isPreemptible());
+		return new RequestBoundWitness(this, maxl, memo, memo.graph.indexOf(rootLongest), interval);
+	}
+
+	/**
+	 * Request bound function of the paths interfering with victim from the nodes
+	 * not sharing a graph with it, with the demands of getMaxRequestBound
+	 */
+	RequestBoundFunction getPrefixedRequestBoundFunction(AnalysisContext ctx, MTTaskNode victim){
+		CompiledTaskGraph cg = ctx.getCompiledGraph(this);
+		boolean[] interfering = cg.interfering(ctx, victim);
+		long[] demands = new long[cg.size];
+		for (int i=0;i<cg.size;i++){
+			demands[i] = interfering[i] ? cg.wcet[i] : 0;
+		}
+		int[] roots = new int[nodes.size()];
+		int numRoots = 0;
+		for (MTTaskNode node:nodes){
+			if (victim != node && !ctx.hasCommonParent(victim, node)) {
+				roots[numRoots++] = cg.indexOf(node);
+			}
+		}
+		return new RequestBoundFunction(cg, Arrays.copyOf(roots, numRoots), demands, cg.activeEdges(ctx), !victim.isPreemptible());
 	}
 
 	public long getRequestBound(MTTaskNode n0, long interval, ArrayList<MTTaskEdge> path){
+		if (path == null) {
+			// the demands of getMaxRequestBoundExclusive
+			CompiledTaskGraph cg = compile();
+			long[] demands = new long[cg.size];
+			for (int i=0;i<cg.size;i++){
+				demands[i] = cg.priority[i] < n0.getPriority() ? cg.wcet[i] : 0;
+			}
+			int[] roots = new int[nodes.size()];
+			for (int i=0;i<roots.length;i++){
+				roots[i] = cg.indexOf(nodes.get(i));
+			}
+			return new RequestBoundFunction(cg, roots, demands, null, false).valueAt(interval);
+		}
 		long maxl=0;
 		ArrayList<MTTaskEdge> maxPath=null;
 		ArrayList<MTTaskEdge>tmpPath=null;
@@ -430,8 +687,11 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 			tmpPath = new ArrayList<MTTaskEdge>();
 		}
 
+		// the enumeration of getMaxRequestBoundExclusive on a graph compiled once
+		CompiledTaskGraph cg = compile();
+		TraversalStack s = new TraversalStack();
 		for (MTTaskNode node:nodes){
-			long l = getMaxRequestBoundExclusive(n0,node, interval, tmpPath);
+			long l = enumerateRequestBound(cg, s, false, n0, node, interval, tmpPath);
 
 			if (l>maxl){
 				if (path != null) {
@@ -494,6 +754,110 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		taskset.add(g1);
 	}
 
+	/**
+	 * Compares the memoized request bound with the path enumeration of
+	 * getMaxRequestBoundInclusive on the graph of testTaskGraphRTSS2013Fig1
+	 * for growing intervals
+	 */
+	public static void testRequestBoundMemo(){
+		MTTaskNode n0 = new MTTaskNode(1,10,"n0");
+		n0.setPriority(1);
+
+		MTTaskGraph g1 = new MTTaskGraph();
+		g1.setPriority(0);
+
+		MTTaskNode n1 = new MTTaskNode(6,10,"n1");
+		MTTaskNode n2 = new MTTaskNode(5,25,"n2");
+		MTTaskNode n3 = new MTTaskNode(1,10,"n3");
+		MTTaskNode n4 = new MTTaskNode(2,12,"n4");
+		MTTaskNode n5 = new MTTaskNode(10,50,"n5");
+
+		g1.addNode(n1);
+		g1.addNode(n2);
+		g1.addNode(n3);
+		g1.addNode(n4);
+		g1.addNode(n5);
+
+		g1.addEdge(new MTTaskEdge(13,n1,n2));
+		g1.addEdge(new MTTaskEdge(100,n2,n4));
+		g1.addEdge(new MTTaskEdge(29,n2,n3));
+		g1.addEdge(new MTTaskEdge(10,n3,n4));
+		g1.addEdge(new MTTaskEdge(18,n3,n5));
+		g1.addEdge(new MTTaskEdge(12,n4,n1));
+		g1.addEdge(new MTTaskEdge(25,n4,n2));
+		g1.addEdge(new MTTaskEdge(50,n5,n5));
+
+		for (long interval = 100; interval <= 800; interval += 100) {
+			long start = System.nanoTime();
+			long enumerated = 0;
+			for (MTTaskNode n:g1.getNodes()){
+				enumerated = Math.max(enumerated, g1.getMaxRequestBoundInclusive(n0, n, interval, null));
+			}
+			long enumeratedNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			AnalysisContext ctx = new AnalysisContext();
+			long memoized = 0;
+			for (MTTaskNode n:g1.getNodes()){
+				memoized = Math.max(memoized, g1.getMaxRequestBound(ctx, true, n0, n, interval, null));
+			}
+			long memoizedNanos = System.nanoTime() - start;
+
+			System.out.println("interval("+interval+"): enumerated("+enumerated+") in "+enumeratedNanos/1000+" us, memoized("+memoized+") in "+memoizedNanos/1000+" us");
+		}
+
+		// the request bound function answers all the intervals
+		long start = System.nanoTime();
+		RequestBoundFunction f = g1.getPrefixedRequestBoundFunction(new AnalysisContext(), n0);
+		f.valueAt(800);
+		long functionNanos = System.nanoTime() - start;
+		String mismatches = "";
+		AnalysisContext ctx = new AnalysisContext();
+		for (long interval = 0; interval <= 800; interval++) {
+			long memoized = 0;
+			for (MTTaskNode n:g1.getNodes()){
+				memoized = Math.max(memoized, g1.getMaxRequestBound(ctx, !n0.isPreemptible(), n0, n, interval, null));
+			}
+			if (f.valueAt(interval) != memoized) {
+				mismatches += " "+interval;
+			}
+		}
+		System.out.println("function up to 800 with "+f.steps+" steps in "+functionNanos/1000+" us, mismatches:"+(mismatches.isEmpty() ? " none" : mismatches));
+	}
+
+	/**
+	 * Request bounds of a self-loop with a small interarrival, over intervals
+	 * admitting up to hundreds of thousands of edges in a path
+	 */
+	public static void testDeepRequestBound(){
+		MTTaskNode n0 = new MTTaskNode(1,10,"n0");
+		n0.setPriority(1);
+
+		MTTaskGraph g1 = new MTTaskGraph();
+		g1.setPriority(0);
+
+		MTTaskNode gt1 = new MTTaskNode(1,4,"gt1");
+
+		g1.addNode(gt1);
+
+		g1.addEdge(new MTTaskEdge(4,gt1,gt1));
+
+		for (long interval = 1000; interval <= 1000000; interval *= 10) {
+			long start = System.nanoTime();
+			ArrayList<MTTaskEdge> path = new ArrayList<MTTaskEdge>();
+			long memoized = g1.getMaxRequestBound(new AnalysisContext(), true, n0, gt1, interval, path);
+			long memoizedNanos = System.nanoTime() - start;
+
+			long expected = (interval / 4 + 1) * gt1.getWCET();
+
+			start = System.nanoTime();
+			long enumerated = g1.getMaxRequestBoundInclusive(n0, gt1, interval, null);
+			long enumeratedNanos = System.nanoTime() - start;
+
+			System.out.println("interval("+interval+"): expected("+expected+"), memoized("+memoized+") with "+path.size()+" edges in "+memoizedNanos/1000+" us, enumerated("+enumerated+") in "+enumeratedNanos/1000+" us");
+		}
+	}
+
 	static ArrayList<MTTaskGraph> testTaskset = new ArrayList<MTTaskGraph>();
 
 	public static ArrayList<MTTaskGraph> getTestTaskset(){
@@ -556,10 +920,13 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		//testTaskGraphRTSS2013Fig1();
 		//testComparator();
 		testTaskGraphsRTJ20015Fig12();
+		testRequestBoundMemo();
+		testDeepRequestBound();
 	}
 
 	public void addParentMode(ActiveContainer mtDigraphMode) {
 		parentModes.add(mtDigraphMode);
+		modified();
 	}
 
 	public boolean isActive(){
@@ -573,4 +940,19 @@ public class MTTaskGraph implements PriorityObject, Comparable<MTTaskGraph> , Se
 		}
 		return false;
 	}
+
+	/**
+	 * Whether this graph is active when only the containers in active are
+	 */
+	boolean isActiveIn(Set<ActiveContainer> active){
+		if (parentModes.isEmpty()) {
+			return true;
+		}
+		for (ActiveContainer m:parentModes){
+			if (active.contains(m)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
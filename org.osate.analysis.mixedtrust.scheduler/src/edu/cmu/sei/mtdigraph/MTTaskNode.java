@@ -30,6 +30,8 @@ package edu.cmu.sei.mtdigraph;
 import java.io.Serializable;
 import java.util.ArrayList;
 
+import edu.cmu.sei.mtzsrm.IdAllocator;
+
 public class MTTaskNode implements PriorityObject,Serializable {
 	/**
 	 * Eclipse-generated id to get rid of warning message.
@@ -52,6 +54,7 @@ public class MTTaskNode implements PriorityObject,Serializable {
 
 	public void setEnforcementDeadline(long e){
 		enforcementDeadline = e;
+		modified();
 	}
 
 	public long getEnforcementDeadline(){
@@ -83,12 +86,14 @@ public class MTTaskNode implements PriorityObject,Serializable {
 
 	public void setPreemptible(boolean p){
 		preemptible=p;
+		modified();
 	}
 
 	boolean transitioningHT = false;
 
 	public void setTransitioningHT(boolean t){
 		transitioningHT = t;
+		modified();
 	}
 
 	public boolean isTransitioningHT() {
@@ -116,10 +121,12 @@ public class MTTaskNode implements PriorityObject,Serializable {
 	public void setPriority(int p){
 		priority = p;
 		independentPriority = true;
+		modified();
 	}
 
 	public void setDeadline(long d){
 		deadline=d;
+		modified();
 	}
 
 	public long getDeadline(){
@@ -157,6 +164,8 @@ public class MTTaskNode implements PriorityObject,Serializable {
 	}
 
 	public void addParentGraph(MTTaskGraph mtTaskGraph) {
+		// the graphs already holding the node now share a parent with the new one
+		modified();
 		parentGraphs.add(mtTaskGraph);
 	}
 
@@ -164,6 +173,7 @@ public class MTTaskNode implements PriorityObject,Serializable {
 
 	public void setActive(boolean a){
 		active =a;
+		modified();
 	}
 
 	public boolean isActive(){
@@ -179,6 +189,13 @@ public class MTTaskNode implements PriorityObject,Serializable {
 		return false;
 	}
 
+	// counts a modification in the graphs of this node, see MTTaskGraph.getModCount()
+	void modified(){
+		for (MTTaskGraph g:parentGraphs){
+			g.modCount++;
+		}
+	}
+
 	public boolean hasCommonParent(MTTaskNode o){
 		for (var p:parentGraphs){
 			if (o.parentGraphs.contains(p)) {
@@ -188,8 +205,8 @@ public class MTTaskNode implements PriorityObject,Serializable {
 		return false;
 	}
 
-	static long nextUniqueId=0;
-	long uniqueId = nextUniqueId++;
+	// from the allocator of the creating thread, see IdAllocator
+	long uniqueId = IdAllocator.current().nextId(IdAllocator.Sequence.TASK_NODE);
 
 	@Override
 	public long getUniqueId() {
@@ -0,0 +1,230 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * Request bound function of a graph, i.e., the maximum demand of the paths from a
+ * set of root nodes whose releases fit in an interval, for every interval.
+ *
+ * It is computed exploring the (demand, elapsed time, node) tuples of the paths by
+ * increasing elapsed time, where a tuple is discarded if another tuple of the same
+ * node has at least its demand with at most its elapsed time: every extension of
+ * the dominated tuple is dominated by the same extension of the other one. The
+ * remaining tuples give the steps of the function, which is then evaluated for any
+ * interval by binary search.
+ *
+ * The exploration is incremental: it stops at the longest interval queried so far
+ * and keeps its frontier, so a query with a longer interval (e.g., in the next
+ * iteration of a response time) only explores the tuples between the two.
+ */
+class RequestBoundFunction {
+
+	// tuple of a path ending at node
+	static final class Tuple {
+		final int node;
+
+		final long demand;
+
+		final long elapsed;
+
+		boolean dominated = false;
+
+		Tuple(int node, long demand, long elapsed){
+			this.node = node;
+			this.demand = demand;
+			this.elapsed = elapsed;
+		}
+	}
+
+	final CompiledTaskGraph graph;
+
+	final long[] demands;
+
+	// edges that can be traversed, all of them if null
+	final boolean[] edges;
+
+	final boolean inclusive;
+
+	// victim and accounted graphs of the demands, if computed for a context
+	MTTaskNode victim = null;
+
+	BitSet accounted = null;
+
+	// non-dominated tuples of each node, sorted by elapsed time and demand
+	final ArrayList<ArrayList<Tuple>> fronts;
+
+	// tuples not explored yet, beyond the horizon
+	final PriorityQueue<Tuple> frontier = new PriorityQueue<Tuple>((a, b) -> Long.compare(a.elapsed, b.elapsed));
+
+	// elapsed time up to which the tuples are explored
+	long horizon = -1;
+
+	// steps sorted by elapsed time, with increasing demands
+	long[] stepElapsed = new long[8];
+
+	long[] stepDemand = new long[8];
+
+	int steps = 0;
+
+	/**
+	 * Function of the paths of graph from the roots (node indices).
+	 *
+	 * @param demands demand of each node in the paths, e.g., zero if it does not interfere
+	 * @param edges edges that can be traversed, e.g., the active ones, or null for all
+	 * @param inclusive whether an edge can be traversed when its interarrival equals
+	 * the remaining interval
+	 */
+	RequestBoundFunction(CompiledTaskGraph graph, int[] roots, long[] demands, boolean[] edges, boolean inclusive){
+		this.graph = graph;
+		this.demands = demands;
+		this.edges = edges;
+		this.inclusive = inclusive;
+		fronts = new ArrayList<ArrayList<Tuple>>(Collections.nCopies(graph.size, (ArrayList<Tuple>) null));
+		for (int root:roots){
+			offer(new Tuple(root, demands[root], 0));
+		}
+	}
+
+	/**
+	 * Adds t to the front of its node unless it is dominated, discarding the
+	 * tuples it dominates
+	 */
+	void offer(Tuple t){
+		ArrayList<Tuple> front = fronts.get(t.node);
+		if (front == null) {
+			front = new ArrayList<Tuple>();
+			fronts.set(t.node, front);
+		}
+		// first tuple with a larger elapsed time
+		int lo = 0, hi = front.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (front.get(mid).elapsed <= t.elapsed) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		if (lo > 0 && front.get(lo - 1).demand >= t.demand) {
+			return;
+		}
+		// the following tuples have larger demands, discard the ones not larger than t's
+		int end = lo;
+		while (end < front.size() && front.get(end).demand <= t.demand) {
+			front.get(end).dominated = true;
+			end++;
+		}
+		// a preceding tuple with the same elapsed time has a smaller demand
+		int start = lo;
+		if (start > 0 && front.get(start - 1).elapsed == t.elapsed) {
+			start--;
+			front.get(start).dominated = true;
+		}
+		front.subList(start, end).clear();
+		front.add(start, t);
+		frontier.add(t);
+	}
+
+	/**
+	 * Explores the tuples up to elapsed time h. The tuples explored cannot be
+	 * dominated afterwards because the tuples offered next are later.
+	 */
+	void extend(long h){
+		while (!frontier.isEmpty() && frontier.peek().elapsed <= h) {
+			Tuple t = frontier.poll();
+			if (t.dominated) {
+				continue;
+			}
+			addStep(t.elapsed, t.demand);
+			for (int k=graph.successorStart[t.node];k<graph.successorStart[t.node+1];k++){
+				if (edges != null && !edges[k]) {
+					continue;
+				}
+				int i = graph.successorTarget[k];
+				offer(new Tuple(i, t.demand + demands[i], t.elapsed + graph.interarrival[k]));
+			}
+		}
+		horizon = h;
+	}
+
+	void addStep(long elapsed, long demand){
+		if (steps > 0 && demand <= stepDemand[steps - 1]) {
+			return;
+		}
+		if (steps > 0 && stepElapsed[steps - 1] == elapsed) {
+			stepDemand[steps - 1] = demand;
+			return;
+		}
+		if (steps == stepElapsed.length) {
+			stepElapsed = Arrays.copyOf(stepElapsed, steps * 2);
+			stepDemand = Arrays.copyOf(stepDemand, steps * 2);
+		}
+		stepElapsed[steps] = elapsed;
+		stepDemand[steps] = demand;
+		steps++;
+	}
+
+	/**
+	 * Maximum demand of the paths whose releases fit in interval, extending the
+	 * exploration if needed. The roots always fit.
+	 */
+	long valueAt(long interval){
+		if (interval > horizon) {
+			extend(Math.max(interval, 0));
+		}
+		if (steps == 0) {
+			return 0;
+		}
+		// last step fitting
+		int lo = 1, hi = steps;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (stepElapsed[mid] < interval || (inclusive && stepElapsed[mid] == interval)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return stepDemand[lo - 1];
+	}
+
+	long getHorizon(){
+		return horizon;
+	}
+
+	@Override
+	public String toString(){
+		return "rbf"+Arrays.toString(Arrays.copyOf(stepElapsed, steps))+"->"+Arrays.toString(Arrays.copyOf(stepDemand, steps));
+	}
+}
@@ -0,0 +1,286 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Request bounds of the paths of a graph already computed for a victim. The bound
+ * of a node only changes with the interval when an edge of its paths enters the
+ * interval, hence each bound is memoized with the range of intervals over which the
+ * same edges are admitted, and any query within that range reuses it.
+ *
+ * The bounds are only valid for the victim, the interval inclusiveness and the
+ * accounted graphs they were computed with, while the graphs are not modified.
+ *
+ * The bounds are indexed by the nodes of the compiled graph, together with the
+ * demands of the nodes and the activity of the edges for the victim.
+ *
+ * Each node also keeps the maximum density (demand over interarrival) of the edges
+ * reachable from it. A path from the node within an interval cannot request more
+ * than the demand of the node plus that density times the interval, which lets the
+ * search skip the successors that cannot beat the best one found.
+ *
+ * The bounds of the nodes with at most one active successor are not memoized,
+ * since they are the bound of the successor plus the demand of the node. The
+ * search goes through them on its stack instead of storing a range for each edge
+ * of a chain, e.g., of a self-loop with a small interarrival.
+ */
+class RequestBoundMemo {
+
+	// disjoint ranges [lo, hi) of intervals with the same bound of a node, sorted
+	static final class NodeBounds {
+		long[] lo = new long[4];
+
+		long[] hi = new long[4];
+
+		long[] values = new long[4];
+
+		// index of the first edge of a path with the bound, -1 if the path is the node alone
+		int[] next = new int[4];
+
+		int size = 0;
+
+		// demand of the node for the victim
+		long demand = 0;
+
+		// maximum density of the reachable edges, as a fraction; unbounded if the
+		// denominator is zero
+		long densityNum = 0;
+
+		long densityDen = 1;
+
+		/**
+		 * Whether the upper bound of the request of the paths from the node within
+		 * interval exceeds request. A bound that overflows exceeds any request, so
+		 * that the node is never pruned on it.
+		 */
+		boolean exceeds(long interval, long request){
+			if (densityDen == 0) {
+				return true;
+			}
+			long product = saturatedMultiply(densityNum, interval);
+			if (product == Long.MAX_VALUE) {
+				return true;
+			}
+			return product / densityDen > request - demand;
+		}
+
+		/**
+		 * End of the intervals within which the paths from the node cannot request
+		 * more than request, which must be at least the demand of the node, given
+		 * that they cannot within interval. If the end overflows, the range is
+		 * only known to include interval.
+		 */
+		long boundedUntil(long interval, long request){
+			if (densityNum == 0) {
+				return Long.MAX_VALUE;
+			}
+			// largest interval with floor(densityNum * interval / densityDen) <= request - demand
+			long product = saturatedMultiply(request - demand + 1, densityDen);
+			if (product == Long.MAX_VALUE) {
+				return interval + 1;
+			}
+			return (product - 1) / densityNum + 1;
+		}
+
+		// index of the last range starting at or before interval, -1 if none
+		int floor(long interval){
+			int i = Arrays.binarySearch(lo, 0, size, interval);
+			return i >= 0 ? i : -i - 2;
+		}
+
+		/**
+		 * Index of the range containing interval, or -1 if it is not memoized
+		 */
+		int find(long interval){
+			int i = floor(interval);
+			return i >= 0 && interval < hi[i] ? i : -1;
+		}
+
+		/**
+		 * Stores the bound of a range containing interval, which must not be memoized
+		 * yet. The range is clipped to the ranges already memoized.
+		 */
+		int store(long interval, long from, long to, long value, int edge){
+			int i = floor(interval) + 1;
+			if (i > 0) {
+				from = Math.max(from, hi[i - 1]);
+			}
+			if (i < size) {
+				to = Math.min(to, lo[i]);
+			}
+			if (size == lo.length) {
+				lo = Arrays.copyOf(lo, size * 2);
+				hi = Arrays.copyOf(hi, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+				next = Arrays.copyOf(next, size * 2);
+			}
+			System.arraycopy(lo, i, lo, i + 1, size - i);
+			System.arraycopy(hi, i, hi, i + 1, size - i);
+			System.arraycopy(values, i, values, i + 1, size - i);
+			System.arraycopy(next, i, next, i + 1, size - i);
+			lo[i] = from;
+			hi[i] = to;
+			values[i] = value;
+			next[i] = edge;
+			size++;
+			return i;
+		}
+	}
+
+	final MTTaskNode victim;
+
+	final boolean inclusive;
+
+	// graphs accounted when the bounds were computed
+	final BitSet accounted;
+
+	final CompiledTaskGraph graph;
+
+	final NodeBounds[] bounds;
+
+	// whether each node interferes with the victim
+	final boolean[] interfering;
+
+	final boolean[] activeEdges;
+
+	// whether each node has at most one active successor, and hence is not memoized
+	final boolean[] chained;
+
+	// range of the last bound returned
+	long lo, hi;
+
+	// whether the densities of the nodes are computed
+	boolean densities = false;
+
+	RequestBoundMemo(AnalysisContext ctx, CompiledTaskGraph graph, MTTaskNode victim, boolean inclusive){
+		this.graph = graph;
+		this.victim = victim;
+		this.inclusive = inclusive;
+		this.accounted = (BitSet) ctx.accounted.clone();
+		interfering = graph.interfering(ctx, victim);
+		activeEdges = graph.activeEdges(ctx);
+		bounds = new NodeBounds[graph.size];
+		for (int i=0;i<graph.size;i++){
+			bounds[i] = new NodeBounds();
+			bounds[i].demand = interfering[i] ? graph.wcet[i] : 0;
+		}
+		chained = new boolean[graph.size];
+		for (int i=0;i<graph.size;i++){
+			int successors = 0;
+			for (int k=graph.successorStart[i];k<graph.successorStart[i+1];k++){
+				if (activeEdges[k]) {
+					successors++;
+				}
+			}
+			chained[i] = successors <= 1;
+		}
+	}
+
+	boolean isValidFor(MTTaskNode v, boolean incl, BitSet acc){
+		return victim == v && inclusive == incl && accounted.equals(acc);
+	}
+
+	/**
+	 * Computes the maximum density of the active edges reachable from each node,
+	 * propagating the densities backwards until they do not change
+	 */
+	void computeDensities(){
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int n=0;n<graph.size;n++){
+				NodeBounds nb = bounds[n];
+				for (int k=graph.successorStart[n];k<graph.successorStart[n+1];k++){
+					if (!activeEdges[k] || nb.densityDen == 0) {
+						continue;
+					}
+					NodeBounds tb = bounds[graph.successorTarget[k]];
+					long num = tb.demand, den = graph.interarrival[k];
+					if (den <= 0) {
+						// no bound with a non-positive interarrival
+						num = 1;
+						den = 0;
+					}
+					if (den == 0 || isDenser(num, den, nb.densityNum, nb.densityDen)) {
+						nb.densityNum = num;
+						nb.densityDen = den;
+						changed = true;
+					}
+					if (nb.densityDen != 0 && (tb.densityDen == 0 || isDenser(tb.densityNum, tb.densityDen, nb.densityNum, nb.densityDen))) {
+						nb.densityNum = tb.densityNum;
+						nb.densityDen = tb.densityDen;
+						changed = true;
+					}
+				}
+			}
+		}
+		densities = true;
+	}
+
+	/**
+	 * a * b for non-negative a and b, or Long.MAX_VALUE if it overflows
+	 */
+	static long saturatedMultiply(long a, long b){
+		long product = a * b;
+		if (Math.multiplyHigh(a, b) != 0 || product < 0) {
+			return Long.MAX_VALUE;
+		}
+		return product;
+	}
+
+	/**
+	 * Whether num/den is larger than otherNum/otherDen for non-negative numerators
+	 * and positive denominators, comparing the exact 128-bit cross products
+	 */
+	static boolean isDenser(long num, long den, long otherNum, long otherDen){
+		long high = Math.multiplyHigh(num, otherDen);
+		long otherHigh = Math.multiplyHigh(otherNum, den);
+		if (high != otherHigh) {
+			return high > otherHigh;
+		}
+		return Long.compareUnsigned(num * otherDen, otherNum * den) > 0;
+	}
+
+	/**
+	 * Shifts a range bound of a successor by the interarrival of the edge to it,
+	 * saturating at the ends of the long range
+	 */
+	static long shift(long bound, long interarrival){
+		if (bound == Long.MIN_VALUE || bound == Long.MAX_VALUE) {
+			return bound;
+		}
+		long shifted = bound + interarrival;
+		if (((bound ^ shifted) & (interarrival ^ shifted)) < 0) {
+			return interarrival > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+		return shifted;
+	}
+}
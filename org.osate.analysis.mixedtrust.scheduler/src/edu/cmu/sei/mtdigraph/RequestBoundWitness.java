@@ -0,0 +1,84 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.ArrayList;
+
+/**
+ * Maximum request of the paths of a graph interfering with a victim, with the
+ * means to rebuild the critical path afterwards (see
+ * {@link MTTaskGraph#getPrefixedRequestBoundWitness(AnalysisContext, MTTaskNode, long, long)}).
+ *
+ * Only the first node of the path and the bounds memoized for the victim are kept,
+ * and the edges of the path are followed from the first edge memoized with each
+ * bound the first time the path is requested, e.g., to log a victim that misses
+ * its deadline. The bounds stay valid for the victim after the context moves on
+ * to other graphs, as long as the graphs are not modified.
+ */
+public final class RequestBoundWitness {
+
+	final MTTaskGraph graph;
+
+	final long request;
+
+	// bounds the request was found with, null if no path of the graph requests anything
+	final RequestBoundMemo memo;
+
+	final int root;
+
+	final long interval;
+
+	ArrayList<MTTaskEdge> path = null;
+
+	RequestBoundWitness(MTTaskGraph graph, long request, RequestBoundMemo memo, int root, long interval){
+		this.graph = graph;
+		this.request = request;
+		this.memo = memo;
+		this.root = root;
+		this.interval = interval;
+	}
+
+	public long getRequest(){
+		return request;
+	}
+
+	/**
+	 * Edges of the first path with the maximum request, rebuilt on the first call
+	 */
+	public ArrayList<MTTaskEdge> getPath(){
+		if (path == null) {
+			path = new ArrayList<MTTaskEdge>();
+			if (memo != null) {
+				// a context of its own, so that the searches completing the path are not traced
+				graph.appendPath(new AnalysisContext(), memo, root, interval, path);
+			}
+		}
+		return path;
+	}
+}
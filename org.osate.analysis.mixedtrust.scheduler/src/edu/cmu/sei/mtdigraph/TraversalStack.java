@@ -0,0 +1,116 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtdigraph;
+
+import java.util.Arrays;
+
+/**
+ * Frames of the request bound searches of {@link MTTaskGraph}, which explore paths
+ * as deep as the number of edges fitting in the interval, e.g., hundreds of
+ * thousands of frames for a self-loop with a small interarrival and a large
+ * deadline. The frames are kept in primitive arrays that only grow, hence a search
+ * neither recurses nor allocates for each node explored, and the arrays are reused
+ * by the next searches.
+ *
+ * The enumerations also keep the edges of the best path of each frame in
+ * pathEdges, from pathStart, with the best paths of the successors explored after
+ * them.
+ */
+class TraversalStack {
+
+	static final int INITIAL_CAPACITY = 16;
+
+	// node explored by each frame, with the interval left, and the next edge to explore
+	int[] node = new int[INITIAL_CAPACITY];
+
+	long[] interval = new long[INITIAL_CAPACITY];
+
+	int[] edge = new int[INITIAL_CAPACITY];
+
+	// best request of the successors explored, and its first edge
+	long[] best = new long[INITIAL_CAPACITY];
+
+	int[] next = new int[INITIAL_CAPACITY];
+
+	// range of intervals admitting the same edges, for the memoized search
+	long[] lo = new long[INITIAL_CAPACITY];
+
+	long[] hi = new long[INITIAL_CAPACITY];
+
+	int[] pathStart = new int[INITIAL_CAPACITY];
+
+	int[] pathLength = new int[INITIAL_CAPACITY];
+
+	int[] pathEdges = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Sets up the frame at depth to explore the successors of node n within
+	 * interval i, starting at edge k
+	 */
+	void enter(int depth, int n, long i, int k){
+		if (depth == node.length) {
+			int capacity = depth * 2;
+			node = Arrays.copyOf(node, capacity);
+			interval = Arrays.copyOf(interval, capacity);
+			edge = Arrays.copyOf(edge, capacity);
+			best = Arrays.copyOf(best, capacity);
+			next = Arrays.copyOf(next, capacity);
+			lo = Arrays.copyOf(lo, capacity);
+			hi = Arrays.copyOf(hi, capacity);
+			pathStart = Arrays.copyOf(pathStart, capacity);
+			pathLength = Arrays.copyOf(pathLength, capacity);
+		}
+		node[depth] = n;
+		interval[depth] = i;
+		edge[depth] = k;
+		best[depth] = 0;
+		next[depth] = -1;
+		lo[depth] = Long.MIN_VALUE;
+		hi[depth] = Long.MAX_VALUE;
+		pathStart[depth] = depth == 0 ? 0 : pathStart[depth - 1] + pathLength[depth - 1] + 1;
+		pathLength[depth] = 0;
+	}
+
+	/**
+	 * Makes the path of the frame at depth the edge k followed by the path of the
+	 * frame above it
+	 */
+	void prependPath(int depth, int k){
+		int from = pathStart[depth + 1];
+		int length = pathLength[depth + 1];
+		int to = pathStart[depth];
+		// the path of a frame without successors may start past the edges stored
+		if (from + length > pathEdges.length) {
+			pathEdges = Arrays.copyOf(pathEdges, Math.max(pathEdges.length * 2, from + length));
+		}
+		System.arraycopy(pathEdges, from, pathEdges, to + 1, length);
+		pathEdges[to] = k;
+		pathLength[depth] = length + 1;
+	}
+}
@@ -0,0 +1,366 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Exact analysis ({@link LayeredTrustExactScheduler#isSchedulable()}) of many task sets
+ * per call. The task sets are given in a flat layout: {@link #FIELDS} ints per task
+ * ({@link #PERIOD}, {@link #DEADLINE}, {@link #GUEST_EXECTIME}, {@link #HYPER_EXECTIME},
+ * {@link #PRIORITY}) with the tasks of task set s at the task indices
+ * [setStart[s], setStart[s+1]). {@link Batch} builds this layout incrementally.
+ *
+ * The evaluation does not create tasks or schedulers: each worker reuses one compiled
+ * task set per task set size and the result arrays can be reused across calls. With
+ * more than one thread the task sets are split in contiguous ranges, one per worker,
+ * evaluated on a {@link ForkJoinPool} and in the calling thread. A failure of any
+ * worker is thrown by the evaluation once all the workers are done, as with one thread.
+ */
+public class BatchEvaluator {
+
+	public static final int PERIOD = 0;
+	public static final int DEADLINE = 1;
+	public static final int GUEST_EXECTIME = 2;
+	public static final int HYPER_EXECTIME = 3;
+	public static final int PRIORITY = 4;
+	public static final int FIELDS = 5;
+
+	final int threads;
+
+	final Worker[] workers;
+
+	// runs the ranges of all the workers but the first, which runs in the calling thread
+	ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	public BatchEvaluator(){
+		this(1);
+	}
+
+	public BatchEvaluator(int threads){
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least one: "+threads);
+		}
+		this.threads = threads;
+		workers = new Worker[threads];
+		for (int w=0;w<threads;w++){
+			workers[w] = new Worker();
+		}
+	}
+
+	public int getThreads(){
+		return threads;
+	}
+
+	public void setPool(ForkJoinPool p){
+		pool = p;
+	}
+
+	public ForkJoinPool getPool(){
+		return pool;
+	}
+
+	/**
+	 * Total fixed-point iterations of the workers
+	 */
+	public long getFixedPointIterations(){
+		long iterations=0;
+		for (Worker w:workers){
+			iterations += w.scheduler.getFixedPointIterations();
+		}
+		return iterations;
+	}
+
+	public Results evaluate(Batch batch){
+		return evaluate(batch.tasks, batch.setStart, batch.numSets, null);
+	}
+
+	public Results evaluate(int[] tasks, int[] setStart, int numSets){
+		return evaluate(tasks, setStart, numSets, null);
+	}
+
+	/**
+	 * Evaluates the first numSets task sets storing the results in reuse if
+	 * it is not null (growing its arrays when needed).
+	 */
+	public Results evaluate(int[] tasks, int[] setStart, int numSets, Results reuse){
+		Results results = (reuse != null ? reuse : new Results());
+		results.ensureCapacity(numSets, setStart[numSets]);
+		results.numSets = numSets;
+
+		if (threads == 1 || numSets < threads){
+			workers[0].evaluate(tasks, setStart, 0, numSets, results);
+			return results;
+		}
+
+		ForkJoinTask<?>[] running = new ForkJoinTask<?>[threads];
+		for (int w=1;w<threads;w++){
+			Worker worker = workers[w];
+			int from = (int) ((long) numSets * w / threads);
+			int to = (int) ((long) numSets * (w+1) / threads);
+			running[w] = pool.submit(() -> worker.evaluate(tasks, setStart, from, to, results));
+		}
+		// the other workers must be done with the results before a failure is thrown
+		Throwable failure = null;
+		try {
+			workers[0].evaluate(tasks, setStart, 0, (int) ((long) numSets / threads), results);
+		} catch (RuntimeException | Error e) {
+			failure = e;
+		}
+		for (int w=1;w<threads;w++){
+			try {
+				running[w].join();
+			} catch (RuntimeException | Error e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw (RuntimeException) failure;
+		}
+		return results;
+	}
+
+	static class Worker {
+		final LayeredTrustExactScheduler scheduler = new LayeredTrustExactScheduler();
+
+		// compiled task sets by size
+		CompiledTaskSet[] scratch = new CompiledTaskSet[0];
+		int[] order = new int[0];
+		int[] hyperResponseTimes = new int[0];
+		int[] guestResponseTimes = new int[0];
+
+		void evaluate(int[] tasks, int[] setStart, int from, int to, Results results){
+			for (int s=from;s<to;s++){
+				int first = setStart[s];
+				int size = setStart[s+1] - first;
+				CompiledTaskSet ts = load(tasks, first, size);
+
+				Arrays.fill(hyperResponseTimes, 0, size, -1);
+				Arrays.fill(guestResponseTimes, 0, size, -1);
+				results.schedulable[s] = scheduler.isSchedulable(ts, hyperResponseTimes, guestResponseTimes);
+
+				// back to the order of the input
+				for (int i=0;i<size;i++){
+					results.hyperResponseTime[first + order[i]] = hyperResponseTimes[i];
+					results.guestResponseTime[first + order[i]] = guestResponseTimes[i];
+				}
+			}
+		}
+
+		/**
+		 * Compiles the task set in decreasing priority order (ties in input order, as
+		 * tasks created in that order) leaving the input index of each task in order.
+		 */
+		CompiledTaskSet load(int[] tasks, int first, int size){
+			if (size >= scratch.length){
+				scratch = Arrays.copyOf(scratch, size+1);
+			}
+			if (size > order.length){
+				order = new int[size];
+				hyperResponseTimes = new int[size];
+				guestResponseTimes = new int[size];
+			}
+			if (scratch[size] == null){
+				scratch[size] = new CompiledTaskSet(size);
+			}
+			CompiledTaskSet ts = scratch[size];
+
+			// insertion sort, task sets are small
+			for (int k=0;k<size;k++){
+				int prio = tasks[(first+k)*FIELDS + PRIORITY];
+				int i = k;
+				while (i > 0 && tasks[(first+order[i-1])*FIELDS + PRIORITY] < prio){
+					order[i] = order[i-1];
+					i--;
+				}
+				order[i] = k;
+			}
+
+			for (int i=0;i<size;i++){
+				int base = (first+order[i])*FIELDS;
+				ts.priority[i] = tasks[base + PRIORITY];
+				ts.period[i] = tasks[base + PERIOD];
+				ts.deadline[i] = tasks[base + DEADLINE];
+				ts.enforcementTimeout[i] = tasks[base + DEADLINE];
+				ts.guestExectime[i] = tasks[base + GUEST_EXECTIME];
+				ts.hyperExectime[i] = tasks[base + HYPER_EXECTIME];
+				ts.predictiveExectime[i] = tasks[base + HYPER_EXECTIME];
+				ts.framePeriods[i] = 1;
+			}
+			ts.refresh();
+			return ts;
+		}
+	}
+
+	/**
+	 * Verdict of each task set and hypertask and guest task response time of each
+	 * task (by task index, -1 if not analyzed because an earlier task in priority
+	 * order missed its deadline).
+	 */
+	public static class Results {
+		int numSets;
+		boolean[] schedulable = new boolean[0];
+		int[] hyperResponseTime = new int[0];
+		int[] guestResponseTime = new int[0];
+
+		void ensureCapacity(int numSets, int numTasks){
+			if (schedulable.length < numSets){
+				schedulable = new boolean[numSets];
+			}
+			if (hyperResponseTime.length < numTasks){
+				hyperResponseTime = new int[numTasks];
+				guestResponseTime = new int[numTasks];
+			}
+		}
+
+		public int getNumSets(){
+			return numSets;
+		}
+
+		public boolean isSchedulable(int set){
+			return schedulable[set];
+		}
+
+		public int getHyperResponseTime(int task){
+			return hyperResponseTime[task];
+		}
+
+		public int getGuestResponseTime(int task){
+			return guestResponseTime[task];
+		}
+
+		public int countSchedulable(){
+			int count=0;
+			for (int s=0;s<numSets;s++){
+				if (schedulable[s]){
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Growable flat layout of task sets, reusable across batches with {@link #clear()}
+	 */
+	public static class Batch {
+		int[] tasks = new int[64*FIELDS];
+		int[] setStart = new int[16];
+		int numSets = 0;
+		int numTasks = 0;
+
+		public void addTask(int period, int deadline, int guestExectime, int hyperExectime, int priority){
+			if ((numTasks+1)*FIELDS > tasks.length){
+				tasks = Arrays.copyOf(tasks, tasks.length*2);
+			}
+			int base = numTasks*FIELDS;
+			tasks[base + PERIOD] = period;
+			tasks[base + DEADLINE] = deadline;
+			tasks[base + GUEST_EXECTIME] = guestExectime;
+			tasks[base + HYPER_EXECTIME] = hyperExectime;
+			tasks[base + PRIORITY] = priority;
+			numTasks++;
+		}
+
+		/**
+		 * Closes the current task set with the tasks added since the previous one
+		 */
+		public void endTaskSet(){
+			if (numSets+2 > setStart.length){
+				setStart = Arrays.copyOf(setStart, setStart.length*2);
+			}
+			numSets++;
+			setStart[numSets] = numTasks;
+		}
+
+		public void clear(){
+			numSets = 0;
+			numTasks = 0;
+		}
+
+		public int getNumSets(){
+			return numSets;
+		}
+
+		/**
+		 * Flat task parameters, valid until the next task is added
+		 */
+		public int[] tasks(){
+			return tasks;
+		}
+
+		/**
+		 * Task set starts, valid until the next task set ends
+		 */
+		public int[] setStarts(){
+			return setStart;
+		}
+
+		/**
+		 * Index of the first task of a task set, for the per-task results
+		 */
+		public int getSetStart(int set){
+			return setStart[set];
+		}
+	}
+
+	public static void testThreeTasks(){
+		Batch batch = new Batch();
+		// schedulable task set of LayeredTrustExactScheduler.testThreeTasks()
+		batch.addTask(8, 8, 2, 0, 2);
+		batch.addTask(14, 14, 2, 2, 1);
+		batch.addTask(20, 20, 4, 1, 0);
+		batch.endTaskSet();
+		// same task set with a larger guest execution time of the lowest priority task
+		batch.addTask(8, 8, 2, 0, 2);
+		batch.addTask(14, 14, 2, 2, 1);
+		batch.addTask(20, 20, 8, 1, 0);
+		batch.endTaskSet();
+
+		BatchEvaluator evaluator = new BatchEvaluator();
+		Results results = evaluator.evaluate(batch);
+		for (int s=0;s<results.getNumSets();s++){
+			System.out.println("Task set "+s+" schedulable: "+results.isSchedulable(s));
+			for (int t=batch.getSetStart(s);t<batch.getSetStart(s+1);t++){
+				System.out.println("\tTask["+t+"] hyper R = "+results.getHyperResponseTime(t)+", guest R = "+results.getGuestResponseTime(t));
+			}
+		}
+	}
+
+	public static void main(String args[]){
+		testThreeTasks();
+	}
+}
@@ -0,0 +1,395 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.Collection;
+
+/**
+ * Struct-of-arrays snapshot of a mixed-trust task set used by the
+ * response-time analyses. Tasks are stored in decreasing priority order so that
+ * the higher priority tasks of task i are the indices [0, getHigherPriorityEnd(i))
+ * and the lower priority tasks are the indices [getLowerPriorityStart(i), size()).
+ * Tasks with the same priority belong to neither range, as in {@link HigherPriority}
+ * and {@link LowerPriority}.
+ *
+ * The enforcement timeout of each task is captured from the hypertask response
+ * time at compilation time, hence a task set must be compiled again after the
+ * hypertask analysis to run the guest task analysis.
+ *
+ * The analyses only read the arrays. Engines of this package that evaluate
+ * variations of a task set (e.g., {@link SensitivityAnalyzer}) change the
+ * parameters of a private copy with the package-private setters instead of
+ * compiling modified tasks for every probe.
+ */
+public class CompiledTaskSet {
+
+	final int size;
+
+	final MixedTrustTask[] tasks;
+
+	final int[] priority;
+	final int[] period;
+	final int[] deadline;
+	final int[] enforcementTimeout;
+	final int[] guestExectime;
+	final int[] hyperExectime;
+
+	// Hypertasks that are not predictive are compiled as predictive hypertasks
+	// whose predictive execution time equals their execution time in every frame.
+	final int[] predictiveExectime;
+	final int[] framePeriods;
+
+	// Frame corrections of the predictive hypertasks: per frame, the jobs are charged
+	// the difference between the execution time and the predictive execution time,
+	// rounding the number of frames down if it is negative and up otherwise. The
+	// rounding is an offset added to the interval before the division, hence the
+	// corrections need no branch on the sign (see frameCorrection(int, long)).
+	final long[] frameLength;
+	final int[] frameDelta;
+	final long[] frameCeilOffset;
+	final long[] frameNextOffset;
+	final int[] frameJobsCeilOffset;
+
+	final int[] higherPriorityEnd;
+	final int[] lowerPriorityStart;
+
+	// largest hypertask execution of the lower priority tasks, i.e., the non-preemptive blocking
+	final int[] maxLowerPriorityHyperExectime;
+	final int[] maxLowerPriorityPredictiveExectime;
+
+	double utilization;
+
+	CompiledTaskSet(MixedTrustTask[] tasks){
+		size = tasks.length;
+		this.tasks = tasks;
+		priority = new int[size];
+		period = new int[size];
+		deadline = new int[size];
+		enforcementTimeout = new int[size];
+		guestExectime = new int[size];
+		hyperExectime = new int[size];
+		predictiveExectime = new int[size];
+		framePeriods = new int[size];
+		frameLength = new long[size];
+		frameDelta = new int[size];
+		frameCeilOffset = new long[size];
+		frameNextOffset = new long[size];
+		frameJobsCeilOffset = new int[size];
+		higherPriorityEnd = new int[size];
+		lowerPriorityStart = new int[size];
+		maxLowerPriorityHyperExectime = new int[size];
+		maxLowerPriorityPredictiveExectime = new int[size];
+
+		for (int i=0;i<size;i++){
+			MixedTrustTask t = tasks[i];
+			HyperTask ht = t.getHyperTask();
+			priority[i] = t.getPriority();
+			period[i] = t.getPeriod();
+			deadline[i] = t.getDeadline();
+			enforcementTimeout[i] = t.getEnforcementTimeout();
+			guestExectime[i] = t.getGuestTask().getExectime();
+			hyperExectime[i] = ht.getExectime();
+			if (ht instanceof PredictiveHyperTask) {
+				predictiveExectime[i] = ((PredictiveHyperTask) ht).getPredictiveExecTime();
+				framePeriods[i] = ((PredictiveHyperTask) ht).getFramePeriods();
+			} else {
+				predictiveExectime[i] = ht.getExectime();
+				framePeriods[i] = 1;
+			}
+		}
+
+		refresh();
+	}
+
+	/**
+	 * Empty task set without tasks to be filled through the arrays, e.g., by
+	 * {@link BatchEvaluator}, and refreshed.
+	 */
+	CompiledTaskSet(int size){
+		this.size = size;
+		tasks = new MixedTrustTask[size];
+		priority = new int[size];
+		period = new int[size];
+		deadline = new int[size];
+		enforcementTimeout = new int[size];
+		guestExectime = new int[size];
+		hyperExectime = new int[size];
+		predictiveExectime = new int[size];
+		framePeriods = new int[size];
+		frameLength = new long[size];
+		frameDelta = new int[size];
+		frameCeilOffset = new long[size];
+		frameNextOffset = new long[size];
+		frameJobsCeilOffset = new int[size];
+		higherPriorityEnd = new int[size];
+		lowerPriorityStart = new int[size];
+		maxLowerPriorityHyperExectime = new int[size];
+		maxLowerPriorityPredictiveExectime = new int[size];
+	}
+
+	CompiledTaskSet(CompiledTaskSet ts){
+		size = ts.size;
+		tasks = ts.tasks;
+		priority = ts.priority.clone();
+		period = ts.period.clone();
+		deadline = ts.deadline.clone();
+		enforcementTimeout = ts.enforcementTimeout.clone();
+		guestExectime = ts.guestExectime.clone();
+		hyperExectime = ts.hyperExectime.clone();
+		predictiveExectime = ts.predictiveExectime.clone();
+		framePeriods = ts.framePeriods.clone();
+		frameLength = ts.frameLength.clone();
+		frameDelta = ts.frameDelta.clone();
+		frameCeilOffset = ts.frameCeilOffset.clone();
+		frameNextOffset = ts.frameNextOffset.clone();
+		frameJobsCeilOffset = ts.frameJobsCeilOffset.clone();
+		higherPriorityEnd = ts.higherPriorityEnd.clone();
+		lowerPriorityStart = ts.lowerPriorityStart.clone();
+		maxLowerPriorityHyperExectime = ts.maxLowerPriorityHyperExectime.clone();
+		maxLowerPriorityPredictiveExectime = ts.maxLowerPriorityPredictiveExectime.clone();
+		utilization = ts.utilization;
+	}
+
+	/**
+	 * Recomputes the terms derived from the priorities and the execution times,
+	 * i.e., the priority ranges, the blocking, the utilization and the frame
+	 * corrections, after using the setters.
+	 */
+	void refresh(){
+		for (int i=0;i<size;i++){
+			compileFrameCorrection(i);
+		}
+
+		for (int i=0;i<size;i++){
+			if (i>0 && priority[i] == priority[i-1]){
+				higherPriorityEnd[i] = higherPriorityEnd[i-1];
+			} else {
+				higherPriorityEnd[i] = i;
+			}
+		}
+
+		double util = 0.0;
+		for (int i=0;i<size;i++){
+			util += (guestExectime[i]+hyperExectime[i]) / ((double)period[i]);
+		}
+		utilization = util;
+
+		// suffix maxima over the tasks below the priority level of each task
+		int maxC=0;
+		int maxPC=0;
+		for (int i=size-1;i>=0;i--){
+			if (i<size-1 && priority[i] == priority[i+1]){
+				lowerPriorityStart[i] = lowerPriorityStart[i+1];
+				maxLowerPriorityHyperExectime[i] = maxLowerPriorityHyperExectime[i+1];
+				maxLowerPriorityPredictiveExectime[i] = maxLowerPriorityPredictiveExectime[i+1];
+			} else {
+				lowerPriorityStart[i] = i+1;
+				maxLowerPriorityHyperExectime[i] = maxC;
+				maxLowerPriorityPredictiveExectime[i] = maxPC;
+			}
+			maxC = Math.max(maxC, hyperExectime[i]);
+			maxPC = Math.max(maxPC, Math.max(predictiveExectime[i], hyperExectime[i]));
+		}
+	}
+
+	private void compileFrameCorrection(int i){
+		frameLength[i] = (long) period[i] * framePeriods[i];
+		frameDelta[i] = hyperExectime[i] - predictiveExectime[i];
+		frameCeilOffset[i] = frameDelta[i] > 0 ? frameLength[i] - 1 : 0;
+		// floor(t/frame)+1 = floor((t+frame)/frame)
+		frameNextOffset[i] = frameDelta[i] > 0 ? frameLength[i] : 0;
+		frameJobsCeilOffset[i] = frameDelta[i] > 0 ? framePeriods[i] - 1 : 0;
+	}
+
+	/**
+	 * Correction of the request bound of the predictive hypertask of task j over an
+	 * interval t: the difference per frame started in the interval if positive, per
+	 * frame completed in the interval otherwise.
+	 */
+	long frameCorrection(int j, long t){
+		if (frameDelta[j] == 0){
+			// not predictive, or predicting its execution time
+			return 0;
+		}
+		return IntervalMath.floorDiv(t + frameCeilOffset[j], frameLength[j]) * frameDelta[j];
+	}
+
+	/**
+	 * Correction of the non-preemptive starting time for the jobs released up to t
+	 * included: the difference per frame started at t or before if positive, per
+	 * frame completed otherwise.
+	 */
+	long nonPreemptiveFrameCorrection(int j, long t){
+		if (frameDelta[j] == 0){
+			return 0;
+		}
+		return IntervalMath.floorDiv(t + frameNextOffset[j], frameLength[j]) * frameDelta[j];
+	}
+
+	/**
+	 * Correction of n consecutive jobs of task j from the start of a frame.
+	 */
+	long frameJobsCorrection(int j, long n){
+		if (frameDelta[j] == 0){
+			return 0;
+		}
+		return IntervalMath.floorDiv(n + frameJobsCeilOffset[j], framePeriods[j]) * frameDelta[j];
+	}
+
+	void setGuestExectime(int i, int c){
+		guestExectime[i] = c;
+	}
+
+	/**
+	 * Sets the hypertask execution time of a task that is not predictive.
+	 */
+	void setHyperExectime(int i, int c){
+		hyperExectime[i] = c;
+		predictiveExectime[i] = c;
+		compileFrameCorrection(i);
+	}
+
+	void setEnforcementTimeout(int i, int e){
+		enforcementTimeout[i] = e;
+	}
+
+	/**
+	 * Swaps the parameters of two tasks, leaving the priority structure
+	 * (priorities, priority ranges and blocking) at their indices in place.
+	 */
+	void swap(int a, int b){
+		swap(tasks, a, b);
+		swap(period, a, b);
+		swap(deadline, a, b);
+		swap(enforcementTimeout, a, b);
+		swap(guestExectime, a, b);
+		swap(hyperExectime, a, b);
+		swap(predictiveExectime, a, b);
+		swap(framePeriods, a, b);
+		compileFrameCorrection(a);
+		compileFrameCorrection(b);
+	}
+
+	private static void swap(int[] array, int a, int b){
+		int tmp = array[a];
+		array[a] = array[b];
+		array[b] = tmp;
+	}
+
+	private static void swap(Object[] array, int a, int b){
+		Object tmp = array[a];
+		array[a] = array[b];
+		array[b] = tmp;
+	}
+
+	/**
+	 * Compiles a task set given in decreasing priority order, e.g.,
+	 * {@link LayeredTrustScheduler#getTaskset()}.
+	 */
+	public static CompiledTaskSet compile(Collection<MixedTrustTask> decreasingPriority){
+		return new CompiledTaskSet(decreasingPriority.toArray(new MixedTrustTask[decreasingPriority.size()]));
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public MixedTrustTask getTask(int i){
+		return tasks[i];
+	}
+
+	public int indexOf(MixedTrustTask t){
+		for (int i=0;i<size;i++){
+			if (tasks[i] == t) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Task is not part of the compiled task set: "+t);
+	}
+
+	public int getPriority(int i){
+		return priority[i];
+	}
+
+	public int getPeriod(int i){
+		return period[i];
+	}
+
+	public int getDeadline(int i){
+		return deadline[i];
+	}
+
+	public int getEnforcementTimeout(int i){
+		return enforcementTimeout[i];
+	}
+
+	public int getGuestExectime(int i){
+		return guestExectime[i];
+	}
+
+	public int getHyperExectime(int i){
+		return hyperExectime[i];
+	}
+
+	public int getPredictiveExectime(int i){
+		return predictiveExectime[i];
+	}
+
+	public int getFramePeriods(int i){
+		return framePeriods[i];
+	}
+
+	public int getHigherPriorityEnd(int i){
+		return higherPriorityEnd[i];
+	}
+
+	public int getLowerPriorityStart(int i){
+		return lowerPriorityStart[i];
+	}
+
+	public double getUtilization(){
+		return utilization;
+	}
+
+	/**
+	 * True if task k is alone in the priority level right above task i and task i
+	 * is alone in its level. Then task i suffers all the interference task k suffers
+	 * (with k now among its higher priority tasks and the blocking of k bounded by
+	 * the execution of i plus the blocking of i), hence the hypertask active period
+	 * and the hypertask-aligned guest busy period of k are lower bounds of the ones
+	 * of i and can seed their fixed-point iterations. This requires the execution time
+	 * of i seeding the cold iteration to be positive, otherwise the iteration of i may
+	 * stop at an empty busy period.
+	 */
+	public boolean canSeedFrom(int i, int k){
+		return k < i
+				&& lowerPriorityStart[k] == i
+				&& higherPriorityEnd[k] == k
+				&& lowerPriorityStart[i] == i+1;
+	}
+}
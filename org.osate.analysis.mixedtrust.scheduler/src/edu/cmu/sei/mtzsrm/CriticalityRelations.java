@@ -0,0 +1,132 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Priority and guest criticality relations of a task set for the ZSRM analysis,
+ * as bitsets over the indices of the tasks in decreasing priority order. Bit j of
+ * the set of task i tells whether task j is related to task i as in the iterators
+ * {@link HigherPriorityLowerGuestCriticality} and {@link HigherPriorityHigherSameGuestCriticality},
+ * i.e., with a strictly higher priority and a lower, or higher or same, guest
+ * criticality. The delayable sets are computed once with word-parallel bitset
+ * operations instead of intersecting tree sets for every victim task and iteration.
+ *
+ * The relations capture the priorities and criticalities at construction time,
+ * hence they must be built again after changing them.
+ */
+class CriticalityRelations {
+
+	final MixedTrustTask[] tasks;
+
+	final BitSet[] higherPriorityLowerCriticality;
+	final BitSet[] higherPriorityHigherSameCriticality;
+
+	// higher priority higher or same criticality tasks sharing a lower criticality higher priority task with task i
+	final BitSet[] delayable;
+
+	// higher priority higher or same criticality tasks that are not delayable
+	final BitSet[] nonDelayable;
+
+	final int[] lowerPriorityStart;
+
+	final IdentityHashMap<MixedTrustTask, Integer> index = new IdentityHashMap<MixedTrustTask, Integer>();
+
+	CriticalityRelations(Collection<MixedTrustTask> decreasingPriority){
+		tasks = decreasingPriority.toArray(new MixedTrustTask[decreasingPriority.size()]);
+		int size = tasks.length;
+		higherPriorityLowerCriticality = new BitSet[size];
+		higherPriorityHigherSameCriticality = new BitSet[size];
+		delayable = new BitSet[size];
+		nonDelayable = new BitSet[size];
+
+		// tasks with a lower guest criticality than each criticality level in the task set
+		HashMap<Integer, BitSet> lowerCriticality = new HashMap<Integer, BitSet>();
+		for (int i=0;i<size;i++){
+			index.put(tasks[i], i);
+			lowerCriticality.put(tasks[i].getGuestTask().getCritcality(), new BitSet(size));
+		}
+		for (Map.Entry<Integer, BitSet> e:lowerCriticality.entrySet()){
+			for (int j=0;j<size;j++){
+				if (tasks[j].getGuestTask().getCritcality() < e.getKey()){
+					e.getValue().set(j);
+				}
+			}
+		}
+
+		// tasks with a higher priority are at lower indices, tasks with a lower priority at higher ones
+		int[] higherPriorityEnd = new int[size];
+		lowerPriorityStart = new int[size];
+		for (int i=0;i<size;i++){
+			boolean samePriority = i > 0 && tasks[i].getPriority() == tasks[i-1].getPriority();
+			higherPriorityEnd[i] = samePriority ? higherPriorityEnd[i-1] : i;
+		}
+		for (int i=size-1;i>=0;i--){
+			boolean samePriority = i < size-1 && tasks[i].getPriority() == tasks[i+1].getPriority();
+			lowerPriorityStart[i] = samePriority ? lowerPriorityStart[i+1] : i+1;
+		}
+
+		for (int i=0;i<size;i++){
+			BitSet lower = lowerCriticality.get(tasks[i].getGuestTask().getCritcality());
+			higherPriorityLowerCriticality[i] = lower.get(0, higherPriorityEnd[i]);
+			higherPriorityHigherSameCriticality[i] = new BitSet(size);
+			higherPriorityHigherSameCriticality[i].set(0, higherPriorityEnd[i]);
+			higherPriorityHigherSameCriticality[i].andNot(higherPriorityLowerCriticality[i]);
+
+			// A task j in higherPriorityHigherSameCriticality[i] is delayable if it shares a
+			// lower criticality task with task i, i.e., if a higher priority task of j has a
+			// lower criticality than i (the higher priority tasks of j are higher priority
+			// tasks of i and the criticality of j is not lower than the one of i). The higher
+			// priority tasks of j are a prefix of the indices, hence the first task with a
+			// lower criticality than i must be among them: j must follow its priority level.
+			int first = lower.nextSetBit(0);
+			delayable[i] = (BitSet) higherPriorityHigherSameCriticality[i].clone();
+			if (first < 0){
+				delayable[i].clear();
+			} else {
+				delayable[i].clear(0, lowerPriorityStart[first]);
+			}
+			nonDelayable[i] = (BitSet) higherPriorityHigherSameCriticality[i].clone();
+			nonDelayable[i].andNot(delayable[i]);
+		}
+	}
+
+	int indexOf(MixedTrustTask t){
+		Integer i = index.get(t);
+		if (i == null){
+			throw new IllegalArgumentException("Task is not part of the criticality relations: "+t);
+		}
+		return i;
+	}
+}
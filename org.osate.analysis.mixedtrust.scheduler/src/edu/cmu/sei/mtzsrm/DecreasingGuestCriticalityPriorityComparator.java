@@ -39,7 +39,7 @@ public class DecreasingGuestCriticalityPriorityComparator implements Comparator<
 		}
 		if (o2.getGuestTask().getCritcality() == o1.getGuestTask().getCritcality()){
 			if (o1.getPriority() == o2.getPriority()) {
-				return (int) (o1.getUniqueId() - o2.getUniqueId());
+				return Long.compare(o1.getUniqueId(), o2.getUniqueId());
 			} else {
 				return o2.getPriority() -o1.getPriority();
 			}
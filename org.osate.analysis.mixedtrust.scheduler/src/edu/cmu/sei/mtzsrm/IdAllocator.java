@@ -0,0 +1,191 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of the unique ids that break the ties of the task comparators (e.g.,
+ * {@link DecreasingPriorityComparator}), with one sequence per kind of object so
+ * that the ids of each kind follow their creation order.
+ *
+ * Objects take their ids from the allocator of the current thread, which is a
+ * shared allocator unless the thread entered the scope of another one, e.g., for
+ * each analysis:
+ *
+ * <pre>
+ * try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+ *     // create the tasks and analyze them
+ * }
+ * </pre>
+ *
+ * The threads of different scopes do not share a counter: each allocator numbers
+ * its ids from 0 and keeps its serial number in the high bits, so the ids are
+ * unique across allocators and the order of the ids of a scope, hence the results
+ * of its analysis, is deterministic whatever the other analyses running in the JVM.
+ * The shared allocator has serial number 0. The allocators are lock-free and can
+ * be shared by the threads of an analysis.
+ */
+public final class IdAllocator {
+
+	public enum Sequence {
+		MIXED_TRUST_TASK,
+		TASK_NODE,
+		TASK_GRAPH
+	}
+
+	// bits of the ids numbered by an allocator, below its serial number
+	static final int SERIAL_SHIFT = 32;
+
+	static final long NUMBER_MASK = (1L << SERIAL_SHIFT) - 1;
+
+	static final AtomicLong serials = new AtomicLong();
+
+	static final IdAllocator shared = new IdAllocator();
+
+	static final ThreadLocal<IdAllocator> current = new ThreadLocal<IdAllocator>();
+
+	final long serial = serials.getAndIncrement();
+
+	final AtomicLong[] next = new AtomicLong[Sequence.values().length];
+
+	public IdAllocator(){
+		if (serial > Integer.MAX_VALUE){
+			throw new IllegalStateException("Too many id allocators");
+		}
+		for (int i=0;i<next.length;i++){
+			next[i] = new AtomicLong();
+		}
+	}
+
+	public long nextId(Sequence sequence){
+		long number = next[sequence.ordinal()].getAndIncrement();
+		if (number > NUMBER_MASK){
+			throw new IllegalStateException("Too many ids in the sequence "+sequence);
+		}
+		return serial << SERIAL_SHIFT | number;
+	}
+
+	/**
+	 * Position of id in the sequence of its allocator
+	 */
+	public static long numberOf(long id){
+		return id & NUMBER_MASK;
+	}
+
+	/**
+	 * Allocator of the calling thread
+	 */
+	public static IdAllocator current(){
+		IdAllocator allocator = current.get();
+		return allocator == null ? shared : allocator;
+	}
+
+	/**
+	 * Makes this allocator the one of the calling thread until the scope is closed
+	 */
+	public Scope enter(){
+		Scope scope = new Scope(current.get());
+		current.set(this);
+		return scope;
+	}
+
+	public static final class Scope implements AutoCloseable {
+		final IdAllocator previous;
+
+		Scope(IdAllocator previous){
+			this.previous = previous;
+		}
+
+		@Override
+		public void close(){
+			if (previous == null){
+				current.remove();
+			} else {
+				current.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Two threads analyzing the same task set in their own scopes number their tasks
+	 * alike and get the same response times, and a task of a scope is not confused
+	 * with a task of the shared allocator.
+	 */
+	@SuppressWarnings("try")
+	public static void testConcurrentScopes() throws InterruptedException{
+		String[] results = new String[2];
+		Thread[] threads = new Thread[results.length];
+		for (int k=0;k<threads.length;k++){
+			final int index = k;
+			threads[k] = new Thread(() -> {
+				try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+					LayeredTrustExactScheduler sched = new LayeredTrustExactScheduler();
+					for (int i=0;i<3;i++){
+						// same priority: ties broken by the ids
+						sched.add(new MixedTrustTask(100*(i+1), 100*(i+1), 0, new int[] {10}, 1, 5, 0));
+					}
+					StringBuilder b = new StringBuilder();
+					b.append(sched.isSchedulable());
+					for (MixedTrustTask t:sched.getTaskset()){
+						b.append(" #").append(numberOf(t.getUniqueId()))
+						 .append(':').append(t.getHyperTask().getResponseTime())
+						 .append('/').append(t.getGuestTask().getCriticalResponseTime());
+					}
+					results[index] = b.toString();
+				}
+			});
+			threads[k].start();
+		}
+		for (Thread t:threads){
+			t.join();
+		}
+		for (String r:results){
+			System.out.println(r);
+		}
+		if (!results[0].equals(results[1])){
+			throw new IllegalStateException("Scopes analyzed the same task set differently");
+		}
+
+		// same task in and out of a scope: both are kept in the task set
+		LayeredTrustExactScheduler sched = new LayeredTrustExactScheduler();
+		sched.add(new MixedTrustTask(10, 10, 0, new int[] {5}, 1, 1, 0));
+		try (IdAllocator.Scope scope = new IdAllocator().enter()) {
+			sched.add(new MixedTrustTask(10, 10, 0, new int[] {5}, 1, 1, 0));
+		}
+		System.out.println("tasks in and out of a scope: "+sched.getTaskset().size()+", schedulable: "+sched.isSchedulable());
+		if (sched.getTaskset().size() != 2 || sched.isSchedulable()){
+			throw new IllegalStateException("Task of a scope confused with a task of the shared allocator");
+		}
+	}
+
+	public static void main(String args[]) throws InterruptedException{
+		testConcurrentScopes();
+	}
+}
@@ -38,7 +38,7 @@ public class IncreasingPriorityComparator implements Comparator<MixedTrustTask>
 			return 0;
 		}
 		if (o2.getPriority()== o1.getPriority()) {
-			return (int) (o1.getUniqueId() - o2.getUniqueId());
+			return Long.compare(o1.getUniqueId(), o2.getUniqueId());
 		} else {
 			return o1.getPriority() - o2.getPriority();
 		}
@@ -0,0 +1,313 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.HashMap;
+
+import edu.cmu.sei.mtzsrm.LayeredTrustExactScheduler.Alignment;
+
+/**
+ * Admission controller that adds tasks one at a time to a
+ * {@link LayeredTrustExactScheduler} and only analyzes again what the change of
+ * the task set can affect, giving the same verdicts as the exact analysis of the
+ * whole task set.
+ *
+ * A new task affects the hypertasks of lower priority (one more higher priority
+ * task) and the hypertasks of higher priority whose non-preemptive blocking grows.
+ * The guest tasks are affected more broadly: every higher priority guest task
+ * suffers the new lower priority hypertask and every guest task whose enforcement
+ * timeout, or the one of a higher priority task, changes has different request
+ * bound functions. The analysis of each task is then either
+ * <ul>
+ * <li>reused, when its recurrence is unchanged,</li>
+ * <li>warm-started from its cached active or busy period, when the recurrence
+ * only gained interference, or</li>
+ * <li>recomputed from scratch otherwise.</li>
+ * </ul>
+ * Nothing is modified when a task is rejected.
+ */
+public class IncrementalAdmissionController {
+
+	// cached analysis of an admitted task
+	static class TaskState {
+		int blocking;
+		int hyperActivePeriod;
+		int hyperResponseTime;
+		int guestAlignedBusyPeriod;
+		int hyperAlignedBusyPeriod;
+		int guestResponseTime;
+	}
+
+	final LayeredTrustExactScheduler scheduler;
+
+	final HashMap<MixedTrustTask, TaskState> states = new HashMap<MixedTrustTask, TaskState>();
+
+	// statistics of the task analyses, hypertask and guest task counted separately
+	long reused = 0;
+	long warmStarted = 0;
+	long recomputed = 0;
+
+	public IncrementalAdmissionController(){
+		this(new LayeredTrustExactScheduler());
+	}
+
+	/**
+	 * The scheduler must be empty; tasks are added through {@link #tryAdmit(MixedTrustTask)}.
+	 */
+	public IncrementalAdmissionController(LayeredTrustExactScheduler scheduler){
+		if (!scheduler.getTaskset().isEmpty()){
+			throw new IllegalArgumentException("The scheduler must not contain tasks");
+		}
+		this.scheduler = scheduler;
+	}
+
+	public LayeredTrustExactScheduler getScheduler(){
+		return scheduler;
+	}
+
+	public long getReused(){
+		return reused;
+	}
+
+	public long getWarmStarted(){
+		return warmStarted;
+	}
+
+	public long getRecomputed(){
+		return recomputed;
+	}
+
+	/**
+	 * Adds the task if the resulting task set is schedulable. On success the
+	 * response times of all the tasks are up to date, otherwise the scheduler
+	 * and the tasks are left as they were.
+	 */
+	public boolean tryAdmit(MixedTrustTask t){
+		if (states.containsKey(t)){
+			throw new IllegalArgumentException("Task already admitted: "+t);
+		}
+
+		// response times to restore on rejection
+		int[] previousResponseTimes = new int[states.size()+1];
+		MixedTrustTask[] previous = new MixedTrustTask[states.size()+1];
+		int p=0;
+		for (MixedTrustTask ti:scheduler.getTaskset()){
+			previous[p] = ti;
+			previousResponseTimes[p++] = ti.getHyperTask().getResponseTime();
+		}
+		previous[p] = t;
+		previousResponseTimes[p] = t.getHyperTask().getResponseTime();
+
+		scheduler.add(t);
+		TaskState[] analysis = null;
+		try {
+			analysis = analyze(t, true);
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			analysis = null;
+		}
+
+		if (analysis == null){
+			scheduler.remove(t);
+			for (int i=0;i<previous.length;i++){
+				previous[i].getHyperTask().setResponseTime(previousResponseTimes[i]);
+			}
+			return false;
+		}
+
+		commit(analysis);
+		return true;
+	}
+
+	/**
+	 * Removes an admitted task and updates the response times of the remaining
+	 * tasks. Returns whether the remaining task set is schedulable, which may not be
+	 * the case due to scheduling anomalies of the non-preemptive hypertasks. If the
+	 * analysis fails, the task is still removed, the remaining tasks keep their
+	 * response times and the next analyses recompute them.
+	 */
+	public boolean remove(MixedTrustTask t){
+		if (!states.containsKey(t)){
+			throw new IllegalArgumentException("Task not admitted: "+t);
+		}
+		scheduler.remove(t);
+
+		// response times to restore if the analysis fails
+		int[] previousResponseTimes = new int[states.size()-1];
+		int p=0;
+		for (MixedTrustTask ti:scheduler.getTaskset()){
+			previousResponseTimes[p++] = ti.getHyperTask().getResponseTime();
+		}
+
+		TaskState[] analysis = null;
+		try {
+			analysis = analyze(t, false);
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			analysis = null;
+		}
+		states.remove(t);
+
+		if (analysis == null){
+			p=0;
+			for (MixedTrustTask ti:scheduler.getTaskset()){
+				ti.getHyperTask().setResponseTime(previousResponseTimes[p++]);
+				// the state was computed with the removed task
+				states.put(ti, null);
+			}
+			return false;
+		}
+
+		commit(analysis);
+
+		CompiledTaskSet ts = scheduler.compile();
+		if (ts.utilization >= 1.0){
+			return false;
+		}
+		for (int i=0;i<ts.size;i++){
+			if (ts.tasks[i].getHyperTask().getResponseTime() > ts.deadline[i]
+					|| ts.tasks[i].getGuestTask().getCriticalResponseTime() > ts.enforcementTimeout[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void commit(TaskState[] analysis){
+		int i=0;
+		for (MixedTrustTask ti:scheduler.getTaskset()){
+			ti.getHyperTask().setResponseTime(analysis[i].hyperResponseTime);
+			ti.getGuestTask().setCriticalResponseTime(analysis[i].guestResponseTime);
+			states.put(ti, analysis[i]);
+			i++;
+		}
+	}
+
+	/**
+	 * Analyzes the current task set after adding (admit) or removing the task
+	 * changed. The hypertask response times are stored in the tasks to obtain
+	 * their enforcement timeouts. When admitting, returns null as soon as a task
+	 * is not schedulable.
+	 */
+	private TaskState[] analyze(MixedTrustTask changed, boolean admit){
+		CompiledTaskSet ts = scheduler.compile();
+		if (admit && ts.utilization >= 1.0){
+			return null;
+		}
+
+		int changedPriority = changed.getPriority();
+		int changedHyperExectime = changed.getHyperTask().getExectime();
+		TaskState[] analysis = new TaskState[ts.size];
+		boolean[] hyperChanged = new boolean[ts.size];
+
+		// hypertasks
+		for (int i=0;i<ts.size;i++){
+			TaskState old = states.get(ts.tasks[i]);
+			TaskState s = new TaskState();
+			s.blocking = ts.maxLowerPriorityHyperExectime[i];
+			if (old == null || (!admit && ts.priority[i] < changedPriority)){
+				// new task or one more lower priority one after a removal
+				recomputed++;
+				s.hyperActivePeriod = scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, i);
+				s.hyperResponseTime = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, s.hyperActivePeriod);
+			} else if (ts.priority[i] == changedPriority || s.blocking == old.blocking && ts.priority[i] > changedPriority){
+				reused++;
+				s.hyperActivePeriod = old.hyperActivePeriod;
+				s.hyperResponseTime = old.hyperResponseTime;
+			} else if (admit){
+				// one more higher priority task or a larger blocking
+				warmStarted++;
+				s.hyperActivePeriod = scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, i, old.hyperActivePeriod);
+				s.hyperResponseTime = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, s.hyperActivePeriod);
+			} else {
+				// smaller blocking
+				recomputed++;
+				s.hyperActivePeriod = scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, i);
+				s.hyperResponseTime = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, s.hyperActivePeriod);
+			}
+			if (admit && s.hyperResponseTime > ts.deadline[i]){
+				return null;
+			}
+			// the interference of the new task is an additional term, only changes of
+			// the enforcement timeouts of the existing tasks alter the other terms, which
+			// are unknown for the tasks without a state after a failed removal
+			hyperChanged[i] = old != null ? old.hyperResponseTime != s.hyperResponseTime : ts.tasks[i] != changed;
+			analysis[i] = s;
+		}
+
+		for (int i=0;i<ts.size;i++){
+			ts.tasks[i].getHyperTask().setResponseTime(analysis[i].hyperResponseTime);
+		}
+		ts = scheduler.compile();
+
+		// guest tasks
+		boolean hpHyperChanged = false;
+		int hpEnd = 0;
+		for (int i=0;i<ts.size;i++){
+			for (;hpEnd<ts.higherPriorityEnd[i];hpEnd++){
+				hpHyperChanged |= hyperChanged[hpEnd];
+			}
+			TaskState old = states.get(ts.tasks[i]);
+			TaskState s = analysis[i];
+			// same enforcement timeouts, hence the same request bound functions
+			boolean sameTimeouts = old != null && !hyperChanged[i] && !hpHyperChanged;
+
+			if (sameTimeouts && (ts.priority[i] == changedPriority
+					|| ts.priority[i] > changedPriority && changedHyperExectime == 0)){
+				reused++;
+				s.guestAlignedBusyPeriod = old.guestAlignedBusyPeriod;
+				s.hyperAlignedBusyPeriod = old.hyperAlignedBusyPeriod;
+				s.guestResponseTime = old.guestResponseTime;
+			} else if (sameTimeouts && admit){
+				// one more lower priority hypertask or higher priority task
+				warmStarted++;
+				s.guestAlignedBusyPeriod = scheduler.calculateGuestBusyPeriod(ts, i, Alignment.GUESTTASK, old.guestAlignedBusyPeriod);
+				s.hyperAlignedBusyPeriod = scheduler.calculateGuestBusyPeriod(ts, i, Alignment.HYPERTASK, old.hyperAlignedBusyPeriod);
+				s.guestResponseTime = calculateGuestResponseTime(ts, i, s);
+			} else {
+				recomputed++;
+				s.guestAlignedBusyPeriod = scheduler.calculateGuestBusyPeriod(ts, i, Alignment.GUESTTASK);
+				s.hyperAlignedBusyPeriod = scheduler.calculateGuestBusyPeriod(ts, i, Alignment.HYPERTASK);
+				s.guestResponseTime = calculateGuestResponseTime(ts, i, s);
+			}
+			if (admit && s.guestResponseTime > ts.enforcementTimeout[i]){
+				return null;
+			}
+		}
+
+		return analysis;
+	}
+
+	private int calculateGuestResponseTime(CompiledTaskSet ts, int i, TaskState s){
+		return Math.max(
+				scheduler.calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.GUESTTASK, s.guestAlignedBusyPeriod),
+				scheduler.calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.HYPERTASK, s.hyperAlignedBusyPeriod)
+				);
+	}
+}
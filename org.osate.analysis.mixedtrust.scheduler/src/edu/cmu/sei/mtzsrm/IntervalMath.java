@@ -0,0 +1,218 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.Random;
+
+/**
+ * Integer ceiling/floor division kernel used by the request bound functions
+ * and the fixed-point iterations of the mixed-trust schedulers.
+ *
+ * Time values are in the task units (microseconds when the tasks come from
+ * an AADL model), which makes busy windows over long hyperperiods exceed the
+ * int range. All operations are computed on longs and any overflow, including
+ * the final narrowing to int, raises an ArithmeticException instead of wrapping
+ * around. An interval that does not fit in an int is necessarily larger than
+ * any int deadline, hence the schedulers treat the exception as a deadline miss.
+ *
+ * All divisors are periods or frame lengths and must be positive.
+ */
+public final class IntervalMath {
+
+	private IntervalMath(){
+	}
+
+	/**
+	 * ceil(a/b) for b > 0
+	 */
+	public static long ceilDiv(long a, long b){
+		if ((a | b) >>> 31 == 0) {
+			// both in the non-negative int range: 32-bit division
+			int ia = (int) a;
+			int ib = (int) b;
+			int q = ia / ib;
+			return (q * ib != ia) ? q + 1 : q;
+		}
+		long q = a / b;
+		// truncation rounds towards zero, which is the ceiling for negative quotients
+		return (a % b > 0) ? q + 1 : q;
+	}
+
+	/**
+	 * floor(a/b) for b > 0
+	 */
+	public static long floorDiv(long a, long b){
+		if ((a | b) >>> 31 == 0) {
+			return ((int) a) / ((int) b);
+		}
+		return Math.floorDiv(a, b);
+	}
+
+	/**
+	 * max(0, ceil(a/b)) for b > 0
+	 */
+	public static long positiveCeilDiv(long a, long b){
+		return a <= 0 ? 0 : ceilDiv(a, b);
+	}
+
+	/**
+	 * max(0, floor(a/b)) for b > 0
+	 */
+	public static long positiveFloorDiv(long a, long b){
+		return a <= 0 ? 0 : floorDiv(a, b);
+	}
+
+	public static long positiveOrZero(long a){
+		return a < 0 ? 0 : a;
+	}
+
+	public static long multiply(long a, long b){
+		return Math.multiplyExact(a, b);
+	}
+
+	public static long add(long a, long b){
+		return Math.addExact(a, b);
+	}
+
+	public static long subtract(long a, long b){
+		return Math.subtractExact(a, b);
+	}
+
+	/**
+	 * Narrows a time value to int rejecting values that do not fit.
+	 */
+	public static int toInt(long a){
+		if ((int) a != a) {
+			throw new ArithmeticException("time value out of int range: "+a);
+		}
+		return (int) a;
+	}
+
+	/**
+	 * Number of jobs released in an interval of length t times an
+	 * execution time, i.e., the periodic request bound ceil(t/T)*C.
+	 */
+	public static long requestBound(long t, long period, long exectime){
+		return multiply(ceilDiv(t, period), exectime);
+	}
+
+	/**
+	 * The request bound of jobs released with an offset into an interval of
+	 * length t, i.e., max(0, ceil((t-offset)/T))*C.
+	 */
+	public static long offsetRequestBound(long t, long offset, long period, long exectime){
+		return multiply(positiveCeilDiv(subtract(t, offset), period), exectime);
+	}
+
+	/**
+	 * The request bound of a task whose jobs contribute offsetExectime when
+	 * released offset time units before the end of an interval of length t and
+	 * exectime when released in it, i.e.,
+	 * max(0, ceil((t-offset)/T))*offsetExectime + ceil(t/T)*exectime.
+	 * Both ceilings are derived from a single division when 0 <= offset <= T.
+	 */
+	public static long requestBound(long t, long offset, long period, long exectime, long offsetExectime){
+		if (t < 0 || offset < 0 || offset > period) {
+			return add(offsetRequestBound(t, offset, period, offsetExectime),
+					requestBound(t, period, exectime));
+		}
+		long q;
+		long r;
+		if ((t | period) >>> 31 == 0) {
+			int iq = ((int) t) / ((int) period);
+			q = iq;
+			r = t - iq * period;
+		} else {
+			q = t / period;
+			r = t - q * period;
+		}
+		// ceil(t/T) = q + (r>0) and ceil((t-offset)/T) = q + ceil(d/T) with d = r-offset in [-T,T),
+		// i.e., q + (d>0) - (d==-T), evaluated with sign bits to stay branch free
+		long d = r - offset;
+		long jobs = q + ((-r) >>> 63);
+		long offsetJobs = Math.max(0, q + ((-d) >>> 63) - ((d + period - 1) >>> 63));
+		return add(multiply(offsetJobs, offsetExectime), multiply(jobs, exectime));
+	}
+
+	// previous double based formulation kept for the benchmark
+	private static int doubleRequestBound(int t, int offset, int period, int exectime, int offsetExectime){
+		return (int) (
+				Math.max(0, Math.ceil((t - offset) / ((double) period))) * offsetExectime
+				+ Math.ceil(t / ((double) period)) * exectime
+				);
+	}
+
+	/**
+	 * Compares the double based request bound evaluation used before against
+	 * this kernel on the same random intervals.
+	 */
+	public static void benchmark(int n, int rounds){
+		Random rand = new Random(42);
+		int[] t = new int[n];
+		int[] offset = new int[n];
+		int[] period = new int[n];
+		int[] exectime = new int[n];
+		int[] offsetExectime = new int[n];
+		for (int i=0;i<n;i++){
+			period[i] = 1000 + rand.nextInt(1000000);
+			t[i] = rand.nextInt(20 * period[i]);
+			offset[i] = rand.nextInt(period[i] + 1);
+			exectime[i] = rand.nextInt(period[i] / 10 + 1);
+			offsetExectime[i] = rand.nextInt(period[i] / 10 + 1);
+		}
+
+		long doubleSum=0;
+		long longSum=0;
+		long doubleTime=0;
+		long longTime=0;
+		for (int r=0;r<rounds;r++){
+			long start = System.nanoTime();
+			for (int i=0;i<n;i++){
+				doubleSum += doubleRequestBound(t[i], offset[i], period[i], exectime[i], offsetExectime[i]);
+			}
+			doubleTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i=0;i<n;i++){
+				longSum += toInt(requestBound(t[i], offset[i], period[i], exectime[i], offsetExectime[i]));
+			}
+			longTime += System.nanoTime() - start;
+		}
+
+		System.out.println("double: "+(doubleTime/1000000)+" ms, long: "+(longTime/1000000)+" ms"
+				+" (checksums "+doubleSum+", "+longSum+")");
+	}
+
+	public static void main(String args[]){
+		// task set sized arrays as in the analyses, first runs warm up the JIT
+		for (int i=0;i<5;i++){
+			benchmark(64, 300000);
+		}
+	}
+}
@@ -40,46 +40,33 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 					boolean includeGuestPreemption,
 					int interval
 					){
-		int inter=0;
-		int includeGuestPreemptionIndicator = (includeGuestPreemption ? 1 : 0);
+		CompiledTaskSet ts = compile();
+		return calculateRequestBoundFunction(ts, ts.indexOf(ti), align, includeGuestPreemption, interval);
+	}
+
+	public int calculateRequestBoundFunction(
+					CompiledTaskSet ts,
+					int i,
+					Alignment align,
+					boolean includeGuestPreemption,
+					int interval
+					){
+		long inter=0;
+		int guestExectime = (includeGuestPreemption ? ts.guestExectime[i] : 0);
 
 		if (align == Alignment.HYPERTASK){
-			inter = (int)
-						(
-							this.positiveCeilOrZero
-							(
-											(interval -
-													(ti.getPeriod()-ti.getEnforcementTimeout())
-											)
-											/((double)ti.getPeriod())
-							)
-							* ti.getGuestTask().getExectime() * includeGuestPreemptionIndicator
-							+ Math.ceil
-							(
-									interval
-									/((double)ti.getPeriod())
-							)
-							* ti.getHyperTask().getExectime()
-						);
+			// guest jobs are released T-E after the hypertask jobs
+			inter = IntervalMath.requestBound(interval,
+					ts.period[i]-ts.enforcementTimeout[i], ts.period[i],
+					ts.hyperExectime[i], guestExectime);
 		} else { // (align == Alignment.GUESTTASK)
-			inter = (int)
-						(
-							Math.ceil
-							(
-								interval
-								/((double)ti.getPeriod())
-							)
-							* ti.getGuestTask().getExectime() * includeGuestPreemptionIndicator
-							+ this.positiveCeilOrZero
-							(
-									(interval - ti.getEnforcementTimeout())
-									/((double)ti.getPeriod())
-							)
-							* ti.getHyperTask().getExectime()
-						);
+			// hypertask jobs are released E after the guest jobs
+			inter = IntervalMath.requestBound(interval,
+					ts.enforcementTimeout[i], ts.period[i],
+					guestExectime, ts.hyperExectime[i]);
 		}
 
-		return inter;
+		return IntervalMath.toInt(inter);
 	}
 
 	public int calculatePredictiveRequestBoundFunction(
@@ -88,84 +75,99 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			boolean includeGuestPreemption,
 			int interval
 			){
-		int inter=0;
-		int includeGuestPreemptionIndicator = (includeGuestPreemption ? 1 : 0);
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveRequestBoundFunction(ts, ts.indexOf(ti), align, includeGuestPreemption, interval);
+	}
+
+	public int calculatePredictiveRequestBoundFunction(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			boolean includeGuestPreemption,
+			int interval
+			){
+		long inter=0;
+		int guestExectime = (includeGuestPreemption ? ts.guestExectime[i] : 0);
 
 		if (align == Alignment.HYPERTASK){
-			inter = (int)
-					(
-							this.positiveCeilOrZero
-									(
-									(interval -
-											(ti.getPeriod()-ti.getEnforcementTimeout())
-											)
-									/((double)ti.getPeriod())
-									)
-							* ti.getGuestTask().getExectime() * includeGuestPreemptionIndicator
-							+ Math.ceil
-									(
-									interval
-									/((double)ti.getPeriod())
-									)
-							* ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime()
-							+ calculateFrameInterferenceCorrection(ti, interval)
-						);
+			inter = IntervalMath.requestBound(interval,
+					ts.period[i]-ts.enforcementTimeout[i], ts.period[i],
+					ts.predictiveExectime[i], guestExectime)
+					+ ts.frameCorrection(i, interval);
 		} else { // (align == Alignment.GUESTTASK)
-			inter = (int)
-					(
-							Math.ceil
-								(
-									interval
-									/((double)ti.getPeriod())
-								)
-							* ti.getGuestTask().getExectime() * includeGuestPreemptionIndicator
-							+ this.positiveCeilOrZero
-								(
-									(interval - ti.getEnforcementTimeout())
-									/((double)ti.getPeriod())
-								)
-							* ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime()
-							+ calculateFrameInterferenceCorrection(ti,
-									interval-ti.getEnforcementTimeout() >0 ? interval-ti.getEnforcementTimeout():0
-											)
-							);
+			inter = IntervalMath.requestBound(interval,
+					ts.enforcementTimeout[i], ts.period[i],
+					guestExectime, ts.predictiveExectime[i])
+					+ ts.frameCorrection(i, Math.max(0, interval-ts.enforcementTimeout[i]));
 		}
 
-		return inter;
+		return IntervalMath.toInt(inter);
 	}
 
-
 	public int calculateGuestBusyPeriod(
 			MixedTrustTask ti,
 			Alignment align
 			){
+		CompiledTaskSet ts = compile();
+		return calculateGuestBusyPeriod(ts, ts.indexOf(ti), align);
+	}
+
+	public int calculateGuestBusyPeriod(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align
+			){
+		return calculateGuestBusyPeriod(ts, i, align, 0);
+	}
+
+	/**
+	 * Busy period starting the iteration from seed, which must not exceed the
+	 * busy period, e.g., the hypertask-aligned busy period of the task in the
+	 * priority level right above (see {@link CompiledTaskSet#canSeedFrom(int, int)}).
+	 */
+	public int calculateGuestBusyPeriod(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int seed
+			){
 		int activeP=0;
 		int prevActiveP=0;
+		int hpEnd = ts.higherPriorityEnd[i];
+		int lpStart = ts.lowerPriorityStart[i];
 
 		// we seed the active period with exectime
-		activeP=ti.getGuestTask().getExectime();
+		activeP=ts.guestExectime[i];
+		if (seed > activeP){
+			warmStarts++;
+			activeP = seed;
+		}
+
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevActiveP = activeP;
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				checkGuestDivergence(ts, i, false, guestSlope(ts, i, false),
+						alignedConstant(ts, i, align, false), prevActiveP);
+			}
 
-			activeP=0;
+			long w=0;
 
-			LowerPriority lp = new LowerPriority(this.increasingHypertaskPriority,ti);
-			while (lp.hasNext()){
-				MixedTrustTask tj = lp.next();
-				activeP += calculateRequestBoundFunction(tj,Alignment.HYPERTASK,false,prevActiveP);
+			for (int j=lpStart;j<ts.size;j++){
+				w += calculateRequestBoundFunction(ts,j,Alignment.HYPERTASK,false,prevActiveP);
 			}
 
-			activeP += calculateRequestBoundFunction(ti,align,true,prevActiveP);
+			w += calculateRequestBoundFunction(ts,i,align,true,prevActiveP);
 
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask tj = hp.next();
-				activeP += Math.max(
-						calculateRequestBoundFunction(tj,Alignment.HYPERTASK,true,prevActiveP),
-						calculateRequestBoundFunction(tj,Alignment.GUESTTASK,true,prevActiveP)
+			for (int j=0;j<hpEnd;j++){
+				w += Math.max(
+						calculateRequestBoundFunction(ts,j,Alignment.HYPERTASK,true,prevActiveP),
+						calculateRequestBoundFunction(ts,j,Alignment.GUESTTASK,true,prevActiveP)
 						);
 			}
+			activeP = IntervalMath.toInt(w);
 		} while (prevActiveP != activeP);
 
 		return activeP;
@@ -175,33 +177,49 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			MixedTrustTask ti,
 			Alignment align
 			){
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveGuestBusyPeriod(ts, ts.indexOf(ti), align);
+	}
+
+	public int calculatePredictiveGuestBusyPeriod(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align
+			){
 		int activeP=0;
 		int prevActiveP=0;
+		int hpEnd = ts.higherPriorityEnd[i];
+		int lpStart = ts.lowerPriorityStart[i];
 
 		// we seed the active period with exectime
-		activeP=ti.getGuestTask().getExectime();
+		activeP=ts.guestExectime[i];
+
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevActiveP = activeP;
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				checkGuestDivergence(ts, i, true, guestSlope(ts, i, true),
+						alignedConstant(ts, i, align, true), prevActiveP);
+			}
 
-			activeP=0;
+			long w=0;
 
-			LowerPriority lp = new LowerPriority(this.increasingHypertaskPriority,ti);
-			while (lp.hasNext()){
-				MixedTrustTask tj = lp.next();
-				activeP += calculatePredictiveRequestBoundFunction(tj,Alignment.HYPERTASK,false,prevActiveP);
+			for (int j=lpStart;j<ts.size;j++){
+				w += calculatePredictiveRequestBoundFunction(ts,j,Alignment.HYPERTASK,false,prevActiveP);
 			}
 
-			activeP += calculatePredictiveRequestBoundFunction(ti,align,true,prevActiveP);
+			w += calculatePredictiveRequestBoundFunction(ts,i,align,true,prevActiveP);
 
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask tj = hp.next();
-				activeP += Math.max(
-						calculatePredictiveRequestBoundFunction(tj,Alignment.HYPERTASK,true,prevActiveP),
-						calculatePredictiveRequestBoundFunction(tj,Alignment.GUESTTASK,true,prevActiveP)
+			for (int j=0;j<hpEnd;j++){
+				w += Math.max(
+						calculatePredictiveRequestBoundFunction(ts,j,Alignment.HYPERTASK,true,prevActiveP),
+						calculatePredictiveRequestBoundFunction(ts,j,Alignment.GUESTTASK,true,prevActiveP)
 						);
 			}
+			// the demand is not monotonic, see calculatePredictiveHyperTaskNonPreemptiveActivePeriod()
+			activeP = IntervalMath.toInt(Math.max(w, prevActiveP));
 		} while (prevActiveP != activeP);
 
 		return activeP;
@@ -212,37 +230,91 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			Alignment align,
 			int job
 			){
+		CompiledTaskSet ts = compile();
+		return calculateGuestJobFinishingTime(ts, ts.indexOf(ti), align, job);
+	}
+
+	public int calculateGuestJobFinishingTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job
+			){
+		return calculateGuestJobFinishingTime(ts, i, align, job, 0);
+	}
+
+	/**
+	 * Finishing time starting the iteration from seed, which must not exceed the
+	 * finishing time, e.g., the finishing time of the previous job.
+	 */
+	public int calculateGuestJobFinishingTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job,
+			int seed
+			){
+		return calculateGuestJobFinishingTime(ts, i, align, job, seed, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finishing time starting the iteration from seed and stopping at the first
+	 * iterate beyond limit, e.g., the latest finishing time meeting the enforcement
+	 * timeout.
+	 */
+	public int calculateGuestJobFinishingTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job,
+			int seed,
+			int limit
+			){
 		int finishingT=0;
 		int prevFinishingT=0;
 		int alignedToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
+		int hpEnd = ts.higherPriorityEnd[i];
+		int lpStart = ts.lowerPriorityStart[i];
 
 		// seed finishingT;
-		finishingT = ti.getGuestTask().getExectime();
+		finishingT = ts.guestExectime[i];
+		if (seed > finishingT){
+			warmStarts++;
+			finishingT = seed;
+		}
+
+		// own demand of the job and the previous ones
+		long own = (long) job*ts.guestExectime[i]
+				+ (long) (job - 1 + alignedToHyperIndicator) * ts.hyperExectime[i];
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevFinishingT = finishingT;
+			if (prevFinishingT > limit){
+				return prevFinishingT;
+			}
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				checkGuestDivergence(ts, i, false, 0.0, own, prevFinishingT);
+			}
 
-			finishingT=0;
+			long w=0;
 
-			LowerPriority lp = new LowerPriority(this.increasingHypertaskPriority,ti);
-			while (lp.hasNext()){
-				MixedTrustTask tj = lp.next();
-				finishingT += calculateRequestBoundFunction(tj,Alignment.HYPERTASK,false,prevFinishingT);
+			for (int j=lpStart;j<ts.size;j++){
+				w += calculateRequestBoundFunction(ts,j,Alignment.HYPERTASK,false,prevFinishingT);
 			}
 
-			finishingT += job*ti.getGuestTask().getExectime()
-					+ (job - 1 + alignedToHyperIndicator) * ti.getHyperTask().getExectime();
+			w += own;
 
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask tj = hp.next();
-				finishingT += Math.max(
-						calculateRequestBoundFunction(tj,Alignment.HYPERTASK,true,prevFinishingT),
-						calculateRequestBoundFunction(tj,Alignment.GUESTTASK,true,prevFinishingT)
+			for (int j=0;j<hpEnd;j++){
+				w += Math.max(
+						calculateRequestBoundFunction(ts,j,Alignment.HYPERTASK,true,prevFinishingT),
+						calculateRequestBoundFunction(ts,j,Alignment.GUESTTASK,true,prevFinishingT)
 						);
 
 			}
 
+			finishingT = IntervalMath.toInt(w);
 		} while (finishingT != prevFinishingT);
 
 		return finishingT;
@@ -253,39 +325,72 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			Alignment align,
 			int job
 			){
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveGuestJobFinishingTime(ts, ts.indexOf(ti), align, job);
+	}
+
+	public int calculatePredictiveGuestJobFinishingTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job
+			){
+		return calculatePredictiveGuestJobFinishingTime(ts, i, align, job, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finishing time stopping at the first iterate beyond limit
+	 */
+	public int calculatePredictiveGuestJobFinishingTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job,
+			int limit
+			){
 		int finishingT=0;
 		int prevFinishingT=0;
 		int alignedToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
+		int hpEnd = ts.higherPriorityEnd[i];
+		int lpStart = ts.lowerPriorityStart[i];
 
 		// seed finishingT;
-		finishingT = ti.getGuestTask().getExectime();
+		finishingT = ts.guestExectime[i];
+
+		// own demand of the job and the previous ones
+		long own = (long) job*ts.guestExectime[i]
+				+ (long) (job - 1 + alignedToHyperIndicator) * ts.predictiveExectime[i]
+				+ ts.frameJobsCorrection(i, job -1 + alignedToHyperIndicator);
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevFinishingT = finishingT;
+			if (prevFinishingT > limit){
+				return prevFinishingT;
+			}
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				checkGuestDivergence(ts, i, true, 0.0, own, prevFinishingT);
+			}
 
-			finishingT=0;
+			long w=0;
 
-			LowerPriority lp = new LowerPriority(this.increasingHypertaskPriority,ti);
-			while (lp.hasNext()){
-				MixedTrustTask tj = lp.next();
-				finishingT += calculatePredictiveRequestBoundFunction(tj,Alignment.HYPERTASK,false,prevFinishingT);
+			for (int j=lpStart;j<ts.size;j++){
+				w += calculatePredictiveRequestBoundFunction(ts,j,Alignment.HYPERTASK,false,prevFinishingT);
 			}
 
-			finishingT += job*ti.getGuestTask().getExectime()
-					+ (job - 1 + alignedToHyperIndicator) * ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime();
-
-			finishingT += this.calculateFrameNumJobsInterferenceCorrection(ti, job -1 + alignedToHyperIndicator);
+			w += own;
 
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask tj = hp.next();
-				finishingT += Math.max(
-						calculatePredictiveRequestBoundFunction(tj,Alignment.HYPERTASK,true,prevFinishingT),
-						calculatePredictiveRequestBoundFunction(tj,Alignment.GUESTTASK,true,prevFinishingT)
+			for (int j=0;j<hpEnd;j++){
+				w += Math.max(
+						calculatePredictiveRequestBoundFunction(ts,j,Alignment.HYPERTASK,true,prevFinishingT),
+						calculatePredictiveRequestBoundFunction(ts,j,Alignment.GUESTTASK,true,prevFinishingT)
 						);
 
 			}
 
+			// the demand is not monotonic, see calculatePredictiveHyperTaskNonPreemptiveActivePeriod()
+			finishingT = IntervalMath.toInt(Math.max(w, prevFinishingT));
 		} while (finishingT != prevFinishingT);
 
 		return finishingT;
@@ -296,15 +401,25 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			Alignment align,
 			int job
 			){
-		int R=0;
+		CompiledTaskSet ts = compile();
+		return calculateGuestJobResponseTime(ts, ts.indexOf(ti), align, job);
+	}
+
+	public int calculateGuestJobResponseTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job
+			){
+		long R=0;
 		int alignToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
 
-		R = calculateGuestJobFinishingTime(ti,align,job)
+		R = calculateGuestJobFinishingTime(ts,i,align,job)
 				-(
-						(job-1)*ti.getPeriod()
-						+ alignToHyperIndicator*(ti.getPeriod()-ti.getEnforcementTimeout())
+						(long) (job-1)*ts.period[i]
+						+ alignToHyperIndicator*(ts.period[i]-ts.enforcementTimeout[i])
 				 );
-		return R;
+		return IntervalMath.toInt(R);
 	}
 
 	public int calculatePredictiveGuestJobResponseTime(
@@ -312,39 +427,87 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			Alignment align,
 			int job
 			){
-		int R=0;
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveGuestJobResponseTime(ts, ts.indexOf(ti), align, job);
+	}
+
+	public int calculatePredictiveGuestJobResponseTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int job
+			){
+		long R=0;
 		int alignToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
 
-		R = calculatePredictiveGuestJobFinishingTime(ti,align,job)
+		R = calculatePredictiveGuestJobFinishingTime(ts,i,align,job)
 				-(
-						(job-1)*ti.getPeriod()
-						+ alignToHyperIndicator*(ti.getPeriod()-ti.getEnforcementTimeout())
+						(long) (job-1)*ts.period[i]
+						+ alignToHyperIndicator*(ts.period[i]-ts.enforcementTimeout[i])
 				 );
-		return R;
+		return IntervalMath.toInt(R);
 	}
 
 	public int calculateGuestTaskResponseTime(
 			MixedTrustTask ti,
 			Alignment align
 			){
+		CompiledTaskSet ts = compile();
+		return calculateGuestTaskResponseTime(ts, ts.indexOf(ti), align);
+	}
+
+	public int calculateGuestTaskResponseTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align
+			){
+		return calculateGuestTaskResponseTimeInBusyPeriod(ts, i, align, calculateGuestBusyPeriod(ts,i,align));
+	}
+
+	public int calculateGuestTaskResponseTimeInBusyPeriod(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int activeP
+			){
+		return calculateGuestTaskResponseTimeInBusyPeriod(ts, i, align, activeP, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Response time, or a value beyond limit if the response time is beyond limit,
+	 * e.g., the enforcement timeout.
+	 */
+	public int calculateGuestTaskResponseTimeInBusyPeriod(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int activeP,
+			int limit
+			){
 		int R=0;
 		int maxR=0;
-		int activeP=0;
 		int numJobs=0;
+		int finishingT=0;
 		int alignToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
 
-		activeP = calculateGuestBusyPeriod(ti,align);
-		numJobs = (int) Math.ceil
-							(
-									(activeP - alignToHyperIndicator * (ti.getPeriod()-ti.getEnforcementTimeout()))
-									/((double)ti.getPeriod())
-							);
+		numJobs = IntervalMath.toInt(IntervalMath.ceilDiv(
+									activeP - alignToHyperIndicator * (ts.period[i]-ts.enforcementTimeout[i]),
+									ts.period[i]
+							));
 
 		for (int q=1 ; q<= numJobs; q++){
-			R = calculateGuestJobResponseTime(ti,align,q);
+			// job q finishes no earlier than job q-1
+			long release = (long) (q-1)*ts.period[i]
+					+ alignToHyperIndicator*(ts.period[i]-ts.enforcementTimeout[i]);
+			finishingT = calculateGuestJobFinishingTime(ts,i,align,q, warmStart ? finishingT : 0,
+					(int) Math.min(Integer.MAX_VALUE, limit + release));
+			R = IntervalMath.toInt(finishingT - release);
 			if (R>maxR){
 				maxR = R;
 			}
+			if (maxR > limit){
+				break;
+			}
 		}
 
 		return maxR;
@@ -354,50 +517,149 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 			MixedTrustTask ti,
 			Alignment align
 			){
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveGuestTaskResponseTime(ts, ts.indexOf(ti), align);
+	}
+
+	public int calculatePredictiveGuestTaskResponseTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align
+			){
+		return calculatePredictiveGuestTaskResponseTime(ts, i, align, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Response time, or a value beyond limit if the response time is beyond limit
+	 */
+	public int calculatePredictiveGuestTaskResponseTime(
+			CompiledTaskSet ts,
+			int i,
+			Alignment align,
+			int limit
+			){
 		int R=0;
 		int maxR=0;
 		int activeP=0;
 		int numJobs=0;
 		int alignToHyperIndicator = (align == Alignment.HYPERTASK ? 1 : 0);
 
-		activeP = calculatePredictiveGuestBusyPeriod(ti,align);
-		numJobs = (int) Math.ceil
-							(
-									(activeP - alignToHyperIndicator * (ti.getPeriod()-ti.getEnforcementTimeout()))
-									/((double)ti.getPeriod())
-							);
+		activeP = calculatePredictiveGuestBusyPeriod(ts,i,align);
+		numJobs = IntervalMath.toInt(IntervalMath.ceilDiv(
+									activeP - alignToHyperIndicator * (ts.period[i]-ts.enforcementTimeout[i]),
+									ts.period[i]
+							));
 
 		for (int q=1 ; q<= numJobs; q++){
-			R = calculatePredictiveGuestJobResponseTime(ti,align,q);
+			long release = (long) (q-1)*ts.period[i]
+					+ alignToHyperIndicator*(ts.period[i]-ts.enforcementTimeout[i]);
+			R = IntervalMath.toInt(calculatePredictiveGuestJobFinishingTime(ts,i,align,q,
+					(int) Math.min(Integer.MAX_VALUE, limit + release)) - release);
 			if (R>maxR){
 				maxR = R;
 			}
+			if (maxR > limit){
+				break;
+			}
 		}
 
 		return maxR;
 	}
 
 	public int calculateGuestMaxResponseTime(MixedTrustTask ti){
+		CompiledTaskSet ts = compile();
+		return calculateGuestMaxResponseTime(ts, ts.indexOf(ti));
+	}
+
+	public int calculateGuestMaxResponseTime(CompiledTaskSet ts, int i){
 		return Math.max(
-				calculateGuestTaskResponseTime(ti,Alignment.GUESTTASK),
-				calculateGuestTaskResponseTime(ti,Alignment.HYPERTASK)
+				calculateGuestTaskResponseTime(ts,i,Alignment.GUESTTASK),
+				calculateGuestTaskResponseTime(ts,i,Alignment.HYPERTASK)
 				);
 	}
 
 	public int calculatePredictiveGuestMaxResponseTime(MixedTrustTask ti){
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveGuestMaxResponseTime(ts, ts.indexOf(ti));
+	}
+
+	public int calculatePredictiveGuestMaxResponseTime(CompiledTaskSet ts, int i){
 		return Math.max(
-				calculatePredictiveGuestTaskResponseTime(ti,Alignment.GUESTTASK),
-				calculatePredictiveGuestTaskResponseTime(ti,Alignment.HYPERTASK)
+				calculatePredictiveGuestTaskResponseTime(ts,i,Alignment.GUESTTASK),
+				calculatePredictiveGuestTaskResponseTime(ts,i,Alignment.HYPERTASK)
 				);
 	}
 
+	/**
+	 * Slope of a lower bound of the request bound function of task i including
+	 * its guest task, see {@link #checkGuestDivergence}
+	 */
+	static double guestSlope(CompiledTaskSet ts, int i, boolean predictive){
+		return ts.guestExectime[i] / ((double) ts.period[i])
+				+ (predictive ? predictiveSlope(ts, i) : hyperSlope(ts, i));
+	}
+
+	/**
+	 * Constant of a lower bound, with slope {@link #guestSlope}, of the request bound
+	 * function of task i including its guest task aligned as align. The offset of the
+	 * second kind of jobs lowers the bound, and the frame correction of a predictive
+	 * hypertask aligned to the guest task starts at the enforcement timeout.
+	 */
+	static double alignedConstant(CompiledTaskSet ts, int i, Alignment align, boolean predictive){
+		double period = ts.period[i];
+		if (align == Alignment.HYPERTASK){
+			return - (ts.period[i]-ts.enforcementTimeout[i]) / period * ts.guestExectime[i];
+		}
+		if (predictive){
+			return - ts.enforcementTimeout[i] * Math.max(ts.predictiveExectime[i] / period, predictiveSlope(ts, i));
+		}
+		return - ts.enforcementTimeout[i] / period * ts.hyperExectime[i];
+	}
+
+	/**
+	 * Checks the divergence of a guest recurrence of task i whose own demand is at
+	 * least ownSlope * t + ownConstant, adding the lower bounds of the demand of the
+	 * hypertasks of the lower priority tasks and of the higher priority tasks in both
+	 * alignments (see {@link LayeredTrustScheduler#checkDivergence}).
+	 */
+	void checkGuestDivergence(CompiledTaskSet ts, int i, boolean predictive, double ownSlope, double ownConstant, long w){
+		double u = ownSlope;
+		double constant = ownConstant;
+		for (int j=ts.lowerPriorityStart[i];j<ts.size;j++){
+			u += predictive ? predictiveSlope(ts, j) : hyperSlope(ts, j);
+		}
+		for (int j=0;j<ts.higherPriorityEnd[i];j++){
+			u += guestSlope(ts, j, predictive);
+			constant += Math.max(
+					alignedConstant(ts, j, Alignment.HYPERTASK, predictive),
+					alignedConstant(ts, j, Alignment.GUESTTASK, predictive));
+		}
+		checkDivergence(u, constant, w);
+	}
+
 
 	@Override
 	public boolean isGuesttaskSetSchedulable(){
-		for (MixedTrustTask ti:decreasingHypertaskPriority){
-			int r = calculateGuestMaxResponseTime(ti);
-			ti.getGuestTask().setCriticalResponseTime(r);
-			if (r > ti.getEnforcementTimeout()){
+		int hyperAlignedBusyPeriod=0;
+		CompiledTaskSet ts = compile();
+		beginAnalysis();
+		for (int i=0;i<ts.size;i++){
+			int r;
+			try {
+				r = calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.GUESTTASK,
+						calculateGuestBusyPeriod(ts, i, Alignment.GUESTTASK), ts.enforcementTimeout[i]);
+				if (r <= ts.enforcementTimeout[i]){
+					int seed = (warmStart && i>0 && ts.canSeedFrom(i, i-1) && ts.guestExectime[i] > 0) ? hyperAlignedBusyPeriod : 0;
+					hyperAlignedBusyPeriod = calculateGuestBusyPeriod(ts, i, Alignment.HYPERTASK, seed);
+					r = Math.max(r, calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.HYPERTASK,
+							hyperAlignedBusyPeriod, ts.enforcementTimeout[i]));
+				}
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
+			ts.tasks[i].getGuestTask().setCriticalResponseTime(r);
+			if (r > ts.enforcementTimeout[i]){
 				//Logger.addFailure(decreasingHypertaskPriority, ti, true, r);
 				return false;
 			}
@@ -407,10 +669,21 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 	}
 
 	public boolean isPredictiveGuesttaskSetSchedulable(){
-		for (MixedTrustTask ti:decreasingHypertaskPriority){
-			int r = calculatePredictiveGuestMaxResponseTime(ti);
-			ti.getGuestTask().setCriticalResponseTime(r);
-			if (r > ti.getEnforcementTimeout()){
+		CompiledTaskSet ts = compile();
+		beginAnalysis();
+		for (int i=0;i<ts.size;i++){
+			int r;
+			try {
+				r = Math.max(
+						calculatePredictiveGuestTaskResponseTime(ts, i, Alignment.GUESTTASK, ts.enforcementTimeout[i]),
+						calculatePredictiveGuestTaskResponseTime(ts, i, Alignment.HYPERTASK, ts.enforcementTimeout[i])
+						);
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
+			ts.tasks[i].getGuestTask().setCriticalResponseTime(r);
+			if (r > ts.enforcementTimeout[i]){
 				//Logger.addFailure(decreasingHypertaskPriority, ti, true, r);
 				return false;
 			}
@@ -476,6 +749,63 @@ public class LayeredTrustExactScheduler extends LayeredTrustScheduler {
 		return true;
 	}
 
+	/**
+	 * Exact analysis of a compiled task set of hypertasks that are not predictive,
+	 * as {@link #isSchedulable()}, storing the enforcement timeouts in the compiled
+	 * task set and the response times in the arrays (by index) instead of the tasks.
+	 * The response times of the tasks after the first one that misses its deadline
+	 * are left unchanged.
+	 */
+	public boolean isSchedulable(CompiledTaskSet ts, int[] hyperResponseTimes, int[] guestResponseTimes){
+		if (ts.utilization >= 1.0){
+			return false;
+		}
+
+		beginAnalysis();
+		try {
+			int activePeriod=0;
+			for (int i=0;i<ts.size;i++){
+				int seed = (warmStart && i>0 && ts.canSeedFrom(i, i-1) && ts.hyperExectime[i] > 0) ? activePeriod : 0;
+				activePeriod = calculateHyperTaskNonPreemptiveActivePeriod(ts, i, seed);
+				int r = calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, activePeriod, ts.deadline[i]);
+				hyperResponseTimes[i] = r;
+				if (r > ts.deadline[i]){
+					return false;
+				}
+				ts.enforcementTimeout[i] = ts.deadline[i] - r;
+			}
+
+			int hyperAlignedBusyPeriod=0;
+			for (int i=0;i<ts.size;i++){
+				int r = calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.GUESTTASK,
+						calculateGuestBusyPeriod(ts, i, Alignment.GUESTTASK), ts.enforcementTimeout[i]);
+				if (r <= ts.enforcementTimeout[i]){
+					int seed = (warmStart && i>0 && ts.canSeedFrom(i, i-1) && ts.guestExectime[i] > 0) ? hyperAlignedBusyPeriod : 0;
+					hyperAlignedBusyPeriod = calculateGuestBusyPeriod(ts, i, Alignment.HYPERTASK, seed);
+					r = Math.max(r, calculateGuestTaskResponseTimeInBusyPeriod(ts, i, Alignment.HYPERTASK,
+							hyperAlignedBusyPeriod, ts.enforcementTimeout[i]));
+				}
+				guestResponseTimes[i] = r;
+				if (r > ts.enforcementTimeout[i]){
+					return false;
+				}
+			}
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Assigns priorities with {@link OptimalPriorityAssignment}, returning false,
+	 * with the priorities unchanged, if it does not find a schedulable assignment.
+	 */
+	public boolean assignOptimalPriorities(){
+		return new OptimalPriorityAssignment(this).assignPriorities();
+	}
+
 
 	public static void testBasicTwoTasks(){
 		MixedTrustTask mt1 = new MixedTrustTask(
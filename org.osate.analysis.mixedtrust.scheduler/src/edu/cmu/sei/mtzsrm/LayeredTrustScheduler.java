@@ -28,6 +28,7 @@
 package edu.cmu.sei.mtzsrm;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 
 public class LayeredTrustScheduler {
@@ -40,6 +41,27 @@ public class LayeredTrustScheduler {
 		return ((int)Math.max(0, Math.floor(r)));
 	}
 
+	// start the fixed-point iterations from the fixed point of the previous
+	// priority level or job when it is a lower bound of the new one
+	boolean warmStart = true;
+
+	// fixed-point iteration statistics
+	long fixedPointIterations = 0;
+	long warmStarts = 0;
+
+	// fixed-point iterations allowed to each set-level test, see beginAnalysis()
+	long iterationBudget = Long.MAX_VALUE;
+	long analysisIterations = 0;
+	long maxAnalysisIterations = 0;
+	long exhaustedBudgets = 0;
+	long divergences = 0;
+
+	// iterations of a single recurrence between checks of its lower bound, see checkDivergence()
+	static final int DIVERGENCE_CHECK_ITERATIONS = 1024;
+
+	// margin for the rounding of the utilizations in checkDivergence()
+	static final double UTILIZATION_MARGIN = 1e-12;
+
 	TreeSet<MixedTrustTask>decreasingHypertaskPriority = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
 	TreeSet<MixedTrustTask>increasingHypertaskPriority = new TreeSet<MixedTrustTask>(new IncreasingPriorityComparator());
 
@@ -47,6 +69,129 @@ public class LayeredTrustScheduler {
 		return decreasingHypertaskPriority;
 	}
 
+	public boolean isWarmStart(){
+		return warmStart;
+	}
+
+	public void setWarmStart(boolean warmStart){
+		this.warmStart = warmStart;
+	}
+
+	public long getFixedPointIterations(){
+		return fixedPointIterations;
+	}
+
+	public long getWarmStarts(){
+		return warmStarts;
+	}
+
+	/**
+	 * Limits the fixed-point iterations of each set-level test (e.g., the hypertask
+	 * set or the guest task set test), which reports the task set as not schedulable
+	 * when it runs out of iterations. Unlimited by default.
+	 */
+	public void setIterationBudget(long iterationBudget){
+		this.iterationBudget = iterationBudget;
+	}
+
+	public long getIterationBudget(){
+		return iterationBudget;
+	}
+
+	/**
+	 * Largest number of fixed-point iterations of a set-level test
+	 */
+	public long getMaxAnalysisIterations(){
+		return maxAnalysisIterations;
+	}
+
+	/**
+	 * Number of set-level tests stopped by the iteration budget
+	 */
+	public long getExhaustedBudgets(){
+		return exhaustedBudgets;
+	}
+
+	/**
+	 * Number of recurrences stopped because they cannot reach a fixed point in the int range
+	 */
+	public long getDivergences(){
+		return divergences;
+	}
+
+	public void resetStatistics(){
+		fixedPointIterations = 0;
+		warmStarts = 0;
+		analysisIterations = 0;
+		maxAnalysisIterations = 0;
+		exhaustedBudgets = 0;
+		divergences = 0;
+	}
+
+	/**
+	 * Starts the iteration budget of a set-level test. The calculate methods called
+	 * on their own count against the budget of the last test.
+	 */
+	void beginAnalysis(){
+		analysisIterations = 0;
+	}
+
+	/**
+	 * Counts an iteration of a recurrence against the statistics and the budget
+	 */
+	final void countIteration(){
+		fixedPointIterations++;
+		analysisIterations++;
+		if (analysisIterations > maxAnalysisIterations){
+			maxAnalysisIterations = analysisIterations;
+		}
+		if (analysisIterations > iterationBudget){
+			exhaustedBudgets++;
+			throw new DivergenceException("Iteration budget of "+iterationBudget+" exhausted");
+		}
+	}
+
+	/**
+	 * Throws DivergenceException if a recurrence w = f(w) at the iterate w, which does not
+	 * exceed its least fixed point, cannot converge in the int range. The right-hand side
+	 * f(x) must be at least utilization * x + constant for every x >= 0, hence the fixed
+	 * point is at least constant / (1 - utilization), and there is none if the line is
+	 * above the diagonal from w on.
+	 */
+	final void checkDivergence(double utilization, double constant, long w){
+		boolean diverges;
+		if (utilization - UTILIZATION_MARGIN >= 1.0){
+			diverges = (utilization - UTILIZATION_MARGIN) * w + constant > w + 1;
+		} else if (utilization + UTILIZATION_MARGIN >= 1.0){
+			// the fixed point is at least constant / (2 * margin), beyond the int range
+			diverges = constant >= 1.0;
+		} else {
+			diverges = constant / (1.0 - utilization + UTILIZATION_MARGIN) > 2.0 * Integer.MAX_VALUE;
+		}
+		if (diverges){
+			divergences++;
+			throw new DivergenceException("No fixed point in the int range (utilization "
+					+utilization+", constant "+constant+")");
+		}
+	}
+
+	/**
+	 * Slope of the request bound of a hypertask, i.e., its utilization
+	 */
+	static double hyperSlope(CompiledTaskSet ts, int j){
+		return ts.hyperExectime[j] / ((double) ts.period[j]);
+	}
+
+	/**
+	 * Slope of a lower bound of the request bound of a predictive hypertask with its
+	 * frame correction: one job per frame with the execution time, the others with the
+	 * predictive execution time
+	 */
+	static double predictiveSlope(CompiledTaskSet ts, int j){
+		return (ts.predictiveExectime[j] * (ts.framePeriods[j] - 1.0) + ts.hyperExectime[j])
+				/ ((double) ts.period[j] * ts.framePeriods[j]);
+	}
+
 	public void assignDeadlineMonotonicPriorities(){
 		TreeSet<MixedTrustTask> decreasingDeadlineTaskset = new TreeSet<MixedTrustTask>(new DecreasingDeadlineComparator());
 		decreasingDeadlineTaskset.addAll(this.decreasingHypertaskPriority);
@@ -62,6 +207,22 @@ public class LayeredTrustScheduler {
 		this.increasingHypertaskPriority.addAll(decreasingDeadlineTaskset);
 	}
 
+	/**
+	 * Assigns priorities in the given order, starting with the lowest priority
+	 */
+	public void assignPriorities(List<MixedTrustTask> increasingPriority){
+		this.decreasingHypertaskPriority.clear();
+		this.increasingHypertaskPriority.clear();
+
+		int i=0;
+		for (MixedTrustTask t:increasingPriority){
+			t.setPriority(i++);
+		}
+
+		this.decreasingHypertaskPriority.addAll(increasingPriority);
+		this.increasingHypertaskPriority.addAll(increasingPriority);
+	}
+
 	public double getUtilization(){
 		double util=0.0;
 
@@ -83,209 +244,300 @@ public class LayeredTrustScheduler {
 		this.increasingHypertaskPriority.addAll(tasks);
 	}
 
+	public void remove(MixedTrustTask t)
+	{
+		this.decreasingHypertaskPriority.remove(t);
+		this.increasingHypertaskPriority.remove(t);
+	}
+
+	/**
+	 * Compiles the current task set into the array form used by the analyses
+	 */
+	public CompiledTaskSet compile(){
+		return CompiledTaskSet.compile(decreasingHypertaskPriority);
+	}
+
 	public int calculatePredictiveHyperTaskNonPreemptiveActivePeriod(MixedTrustTask ti)
+	{
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveHyperTaskNonPreemptiveActivePeriod(ts, ts.indexOf(ti));
+	}
+
+	public int calculatePredictiveHyperTaskNonPreemptiveActivePeriod(CompiledTaskSet ts, int i)
 	{
 		int ap=0;
 		int prevap=0;
-
-		PredictiveHyperTask phti = (PredictiveHyperTask) ti.getHyperTask();
+		int hpEnd = ts.higherPriorityEnd[i];
+		int iterations = 0;
 
 		do {
+			countIteration();
+			long w;
 			prevap = ap;
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				double u = predictiveSlope(ts, i);
+				for (int j=0;j<hpEnd;j++){
+					u += predictiveSlope(ts, j);
+				}
+				checkDivergence(u, ts.maxLowerPriorityPredictiveExectime[i], prevap);
+			}
 			if (prevap == 0){
-				prevap = ap = phti.getPredictiveExecTime();
+				prevap = ts.predictiveExectime[i];
+				w = prevap;
 			} else {
-				ap = (int) (Math.ceil(((double)prevap)/((double)ti.getPeriod())) * phti.getPredictiveExecTime());
+				w = IntervalMath.requestBound(prevap, ts.period[i], ts.predictiveExectime[i]);
 			}
-			ap += calculateFrameInterferenceCorrection(ti, prevap);
-			ap += this.getPredictiveMaxLowerPriorityPreemption(ti);
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask mt = hp.next();
-				PredictiveHyperTask phtj = (PredictiveHyperTask) mt.getHyperTask();
-				ap += ((int)Math.ceil(((double)prevap)/((double)mt.getPeriod()))) * phtj.getPredictiveExecTime();
-				ap += calculateFrameInterferenceCorrection(mt, prevap);
+			w += ts.frameCorrection(i, prevap);
+			w += ts.maxLowerPriorityPredictiveExectime[i];
+			for (int j=0;j<hpEnd;j++){
+				w = IntervalMath.add(w, IntervalMath.requestBound(prevap, ts.period[j], ts.predictiveExectime[j]));
+				w += ts.frameCorrection(j, prevap);
 			}
+			// The negative frame corrections drop at the end of each frame, before the
+			// next job adds its execution, hence the demand is not monotonic and the
+			// iteration could cycle. The active period ends once the demand does not
+			// exceed the interval.
+			ap = IntervalMath.toInt(Math.max(w, prevap));
 		} while (ap != prevap);
 		return ap;
 	}
 
-
 	public int calculateHyperTaskNonPreemptiveActivePeriod(MixedTrustTask ti)
+	{
+		CompiledTaskSet ts = compile();
+		return calculateHyperTaskNonPreemptiveActivePeriod(ts, ts.indexOf(ti));
+	}
+
+	public int calculateHyperTaskNonPreemptiveActivePeriod(CompiledTaskSet ts, int i)
+	{
+		return calculateHyperTaskNonPreemptiveActivePeriod(ts, i, 0);
+	}
+
+	/**
+	 * Active period starting the iteration from seed, which must not exceed the
+	 * active period, e.g., the active period of the task in the priority level
+	 * right above (see {@link CompiledTaskSet#canSeedFrom(int, int)}).
+	 */
+	public int calculateHyperTaskNonPreemptiveActivePeriod(CompiledTaskSet ts, int i, int seed)
 	{
 		int ap=0;
 		int prevap=0;
+		int hpEnd = ts.higherPriorityEnd[i];
+		int iterations = 0;
 
 		do {
+			countIteration();
+			long w;
 			prevap = ap;
-			if (prevap == 0){
-				prevap = ap = ti.getHyperTask().getExectime();
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				double u = hyperSlope(ts, i);
+				for (int j=0;j<hpEnd;j++){
+					u += hyperSlope(ts, j);
+				}
+				checkDivergence(u, ts.maxLowerPriorityHyperExectime[i], prevap);
+			}
+			if (prevap == 0 && seed > ts.hyperExectime[i]){
+				warmStarts++;
+				prevap = seed;
+				w = IntervalMath.requestBound(prevap, ts.period[i], ts.hyperExectime[i]);
+			} else if (prevap == 0){
+				prevap = ts.hyperExectime[i];
+				w = prevap;
 			} else {
-				ap = (int) (Math.ceil(((double)prevap)/((double)ti.getPeriod())) * ti.getHyperTask().getExectime());
+				w = IntervalMath.requestBound(prevap, ts.period[i], ts.hyperExectime[i]);
 			}
-			ap += this.getMaxLowerPriorityPreemption(ti);
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				MixedTrustTask mt = hp.next();
-				ap += ((int)Math.ceil(((double)prevap)/((double)mt.getPeriod()))) * mt.getHyperTask().getExectime();
+			w += ts.maxLowerPriorityHyperExectime[i];
+			for (int j=0;j<hpEnd;j++){
+				w = IntervalMath.add(w, IntervalMath.requestBound(prevap, ts.period[j], ts.hyperExectime[j]));
 			}
+			ap = IntervalMath.toInt(w);
 		} while (ap != prevap);
 		return ap;
 	}
 
 	public int getPredictiveMaxLowerPriorityPreemption(MixedTrustTask ti)
 	{
-		int c=0;
-		LowerPriority lp;
-
-		lp = new LowerPriority(increasingHypertaskPriority, ti);
-
-		while(lp.hasNext()){
-			MixedTrustTask mt = lp.next();
-			PredictiveHyperTask pht = (PredictiveHyperTask) mt.getHyperTask();
-			if (c<pht.getMaxExecTime()) {
-				c = pht.getMaxExecTime();
-			}
-		}
-
-		return c;
+		CompiledTaskSet ts = compile();
+		return ts.maxLowerPriorityPredictiveExectime[ts.indexOf(ti)];
 	}
 
-
 	public int getMaxLowerPriorityPreemption(MixedTrustTask ti)
 	{
-		int c=0;
-		LowerPriority lp;
-
-		lp = new LowerPriority(increasingHypertaskPriority, ti);
+		CompiledTaskSet ts = compile();
+		return ts.maxLowerPriorityHyperExectime[ts.indexOf(ti)];
+	}
 
-		while(lp.hasNext()){
-			MixedTrustTask mt = lp.next();
-			if (c<mt.getHyperTask().getExectime()) {
-				c = mt.getHyperTask().getExectime();
-			}
-		}
+	public int calculatePredictiveNonPreemptiveStartingTime(MixedTrustTask ti, int job)
+	{
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveNonPreemptiveStartingTime(ts, ts.indexOf(ti), job);
+	}
 
-		return c;
+	public int calculatePredictiveNonPreemptiveStartingTime(CompiledTaskSet ts, int i, int job)
+	{
+		return calculatePredictiveNonPreemptiveStartingTime(ts, i, job, Integer.MAX_VALUE);
 	}
 
-	public int calculatePredictiveNonPreemptiveStartingTime(MixedTrustTask ti, int job)
+	/**
+	 * Starting time of a job, stopping at the first iterate beyond limit, e.g.,
+	 * the latest starting time meeting the deadline.
+	 */
+	public int calculatePredictiveNonPreemptiveStartingTime(CompiledTaskSet ts, int i, int job, int limit)
 	{
 		int w=0;
 		int prevw=0;
-		int a=0;
+		int hpEnd = ts.higherPriorityEnd[i];
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevw = w;
-			w = getPredictiveMaxLowerPriorityPreemption(ti);
+			long s = ts.maxLowerPriorityPredictiveExectime[i];
 			if (job>0) {
-				w = w + ((job-1) * ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime());
-				w += calculateFrameNumJobsInterferenceCorrection(ti, job-1);
+				s = IntervalMath.add(s, IntervalMath.multiply(job-1, ts.predictiveExectime[i]));
+				s += ts.frameJobsCorrection(i, job-1);
 			}
 			if (prevw == 0) {
-				prevw = w;
+				prevw = IntervalMath.toInt(s);
+			}
+			if (prevw > limit) {
+				return prevw;
+			}
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				double u = 0.0;
+				for (int j=0;j<hpEnd;j++){
+					u += predictiveSlope(ts, j);
+				}
+				checkDivergence(u, s, prevw);
 			}
 
-
-			MixedTrustTask tj=null;
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				tj = hp.next();
-				a = (int) Math.floor(((double)prevw)/((double)tj.getPeriod()));
-				w += (a+1) * ((PredictiveHyperTask)tj.getHyperTask()).getPredictiveExecTime();
-				w += calculateNonPreemptiveFrameInterferenceCorrection(tj,prevw);
+			for (int j=0;j<hpEnd;j++){
+				long a = IntervalMath.floorDiv(prevw, ts.period[j]);
+				s = IntervalMath.add(s, IntervalMath.multiply(a+1, ts.predictiveExectime[j]));
+				s += ts.nonPreemptiveFrameCorrection(j, prevw);
 			}
+			w = IntervalMath.toInt(s);
 		} while (w != prevw);
 
 		return w;
 	}
 
-
 	public int calculateNonPreemptiveStartingTime(MixedTrustTask ti, int job)
+	{
+		CompiledTaskSet ts = compile();
+		return calculateNonPreemptiveStartingTime(ts, ts.indexOf(ti), job);
+	}
+
+	public int calculateNonPreemptiveStartingTime(CompiledTaskSet ts, int i, int job)
+	{
+		return calculateNonPreemptiveStartingTime(ts, i, job, 0);
+	}
+
+	/**
+	 * Starting time of a job starting the iteration from seed, which must not
+	 * exceed the starting time, e.g., the starting time of the previous job.
+	 */
+	public int calculateNonPreemptiveStartingTime(CompiledTaskSet ts, int i, int job, int seed)
+	{
+		return calculateNonPreemptiveStartingTime(ts, i, job, seed, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Starting time of a job starting the iteration from seed and stopping at
+	 * the first iterate beyond limit, e.g., the latest starting time meeting
+	 * the deadline.
+	 */
+	public int calculateNonPreemptiveStartingTime(CompiledTaskSet ts, int i, int job, int seed, int limit)
 	{
 		int w=0;
 		int prevw=0;
-		int a=0;
+		int hpEnd = ts.higherPriorityEnd[i];
+		int iterations = 0;
 
 		do {
+			countIteration();
 			prevw = w;
-			w = getMaxLowerPriorityPreemption(ti);
-			w = w + (job * ti.getHyperTask().getExectime());
+			long s = ts.maxLowerPriorityHyperExectime[i];
+			s = IntervalMath.add(s, IntervalMath.multiply(job, ts.hyperExectime[i]));
 			if (prevw == 0) {
-				prevw = w;
+				prevw = IntervalMath.toInt(s);
+				if (seed > prevw) {
+					warmStarts++;
+					prevw = seed;
+				}
+			}
+			if (prevw > limit) {
+				return prevw;
+			}
+			if (++iterations % DIVERGENCE_CHECK_ITERATIONS == 0){
+				double u = 0.0;
+				for (int j=0;j<hpEnd;j++){
+					u += hyperSlope(ts, j);
+				}
+				checkDivergence(u, s, prevw);
 			}
 
-			MixedTrustTask tj=null;
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority, ti);
-			while (hp.hasNext()){
-				tj = hp.next();
-				a = (int) Math.floor(((double)prevw)/((double)tj.getPeriod()));
-				w += (a+1) * tj.getHyperTask().getExectime();
+			for (int j=0;j<hpEnd;j++){
+				long a = IntervalMath.floorDiv(prevw, ts.period[j]);
+				s = IntervalMath.add(s, IntervalMath.multiply(a+1, ts.hyperExectime[j]));
 			}
+			w = IntervalMath.toInt(s);
 		} while (w != prevw);
 
 		return w;
 	}
 
 	public int calculateFrameInterferenceCorrection(MixedTrustTask tj, int t) {
-		int r=0;
-
 		if (!(tj.getHyperTask() instanceof PredictiveHyperTask)) {
 			return 0;
 		}
+		CompiledTaskSet ts = new CompiledTaskSet(new MixedTrustTask[] {tj});
+		return calculateFrameInterferenceCorrection(ts, 0, t);
+	}
 
-		PredictiveHyperTask pht = (PredictiveHyperTask) tj.getHyperTask();
-
-		if (pht.getPredictiveExecTime() > pht.getExectime()) {
-			r = - Math.floorDiv(t, tj.getPeriod()*pht.getFramePeriods()) * (pht.getPredictiveExecTime() - pht.getExectime());
-
-		} else {
-			r = (int) (Math.ceil((double)t/ (double)(tj.getPeriod()*pht.getFramePeriods())) * (pht.getExectime()-pht.getPredictiveExecTime()));
-		}
-
-		return r;
+	public int calculateFrameInterferenceCorrection(CompiledTaskSet ts, int j, int t) {
+		return IntervalMath.toInt(ts.frameCorrection(j, t));
 	}
 
 	public int calculateNonPreemptiveFrameInterferenceCorrection(MixedTrustTask tj, int t) {
-		int r=0;
-
 		if (!(tj.getHyperTask() instanceof PredictiveHyperTask)) {
 			return 0;
 		}
+		CompiledTaskSet ts = new CompiledTaskSet(new MixedTrustTask[] {tj});
+		return calculateNonPreemptiveFrameInterferenceCorrection(ts, 0, t);
+	}
 
-		PredictiveHyperTask pht = (PredictiveHyperTask) tj.getHyperTask();
-
-		if (pht.getPredictiveExecTime() > pht.getExectime()) {
-			r = - Math.floorDiv(t, tj.getPeriod()*pht.getFramePeriods()) * (pht.getPredictiveExecTime() - pht.getExectime());
-
-		} else {
-			r = (Math.floorDiv(t,tj.getPeriod()*pht.getFramePeriods())+1) * (pht.getExectime()-pht.getPredictiveExecTime());
-		}
-
-		return r;
+	public int calculateNonPreemptiveFrameInterferenceCorrection(CompiledTaskSet ts, int j, int t) {
+		return IntervalMath.toInt(ts.nonPreemptiveFrameCorrection(j, t));
 	}
 
 	public int calculateFrameNumJobsInterferenceCorrection(MixedTrustTask tj, int t) {
-		int r;
-
 		if (!(tj.getHyperTask() instanceof PredictiveHyperTask)) {
 			return 0;
 		}
+		CompiledTaskSet ts = new CompiledTaskSet(new MixedTrustTask[] {tj});
+		return calculateFrameNumJobsInterferenceCorrection(ts, 0, t);
+	}
 
-		PredictiveHyperTask pht = (PredictiveHyperTask) tj.getHyperTask();
-
-		if (pht.getPredictiveExecTime() > pht.getExectime()) {
-			r = - Math.floorDiv(t,pht.getFramePeriods()) * (pht.getPredictiveExecTime() - pht.getExectime());
+	public int calculateFrameNumJobsInterferenceCorrection(CompiledTaskSet ts, int j, int t) {
+		return IntervalMath.toInt(ts.frameJobsCorrection(j, t));
+	}
 
-		} else {
-			r = (int) (Math.ceil((double)t/ (double)(pht.getFramePeriods())) * (pht.getExectime()-pht.getPredictiveExecTime()));
+	public int calculatePredictiveHypertaskNonPreemptiveResponseTime(MixedTrustTask ti)
+	{
+		CompiledTaskSet ts = compile();
+		return calculatePredictiveHypertaskNonPreemptiveResponseTime(ts, ts.indexOf(ti));
+	}
 
-		}
-		return r;
+	public int calculatePredictiveHypertaskNonPreemptiveResponseTime(CompiledTaskSet ts, int i)
+	{
+		return calculatePredictiveHypertaskNonPreemptiveResponseTime(ts, i, Integer.MAX_VALUE);
 	}
 
-	// HERE: just finished this modification. Now look for the guest task calculation
-	public int calculatePredictiveHypertaskNonPreemptiveResponseTime(MixedTrustTask ti)
+	/**
+	 * Response time, or a value beyond limit if the response time is beyond limit
+	 */
+	public int calculatePredictiveHypertaskNonPreemptiveResponseTime(CompiledTaskSet ts, int i, int limit)
 	{
 		int r=0;
 		int maxR=0;
@@ -293,85 +545,136 @@ public class LayeredTrustScheduler {
 		int numJobs=0;
 		int w=0;
 
-		a = this.calculatePredictiveHyperTaskNonPreemptiveActivePeriod(ti);
+		a = this.calculatePredictiveHyperTaskNonPreemptiveActivePeriod(ts, i);
 
-		numJobs = (int) Math.ceil(((double)a)/((double)ti.getPeriod()));
+		numJobs = (int) IntervalMath.ceilDiv(a, ts.period[i]);
 
-		for (int i=0;i<numJobs;i++){
-			w = this.calculatePredictiveNonPreemptiveStartingTime(ti, i);
-			w -= (i * ti.getPeriod());
-			r = ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime() >0 ? w + ((PredictiveHyperTask)ti.getHyperTask()).getPredictiveExecTime():0;
+		for (int q=0;q<numJobs;q++){
+			w = this.calculatePredictiveNonPreemptiveStartingTime(ts, i, q,
+					startingTimeLimit(limit, q, ts.period[i], ts.predictiveExectime[i]));
+			w = IntervalMath.toInt(w - ((long) q * ts.period[i]));
+			r = ts.predictiveExectime[i] >0 ? w + ts.predictiveExectime[i]:0;
 			if (r > maxR) {
 				maxR = r;
 			}
+			if (maxR > limit) {
+				break;
+			}
 		}
 
 		return maxR;
 	}
 
-
 	public int calculateHypertaskNonPreemptiveResponseTime(MixedTrustTask ti)
+	{
+		CompiledTaskSet ts = compile();
+		return calculateHypertaskNonPreemptiveResponseTime(ts, ts.indexOf(ti));
+	}
+
+	public int calculateHypertaskNonPreemptiveResponseTime(CompiledTaskSet ts, int i)
+	{
+		return calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i,
+				this.calculateHyperTaskNonPreemptiveActivePeriod(ts, i));
+	}
+
+	public int calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(CompiledTaskSet ts, int i, int activePeriod)
+	{
+		return calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, activePeriod, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Response time, or a value beyond limit if the response time is beyond limit,
+	 * e.g., the deadline.
+	 */
+	public int calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(CompiledTaskSet ts, int i, int activePeriod, int limit)
 	{
 		int r=0;
 		int maxR=0;
-		int a=0;
 		int numJobs=0;
 		int w=0;
+		int start=0;
 
-		a = this.calculateHyperTaskNonPreemptiveActivePeriod(ti);
+		numJobs = (int) IntervalMath.ceilDiv(activePeriod, ts.period[i]);
 
-		numJobs = (int) Math.ceil(((double)a)/((double)ti.getPeriod()));
-
-		for (int i=0;i<numJobs;i++){
-			w = this.calculateNonPreemptiveStartingTime(ti, i);
-			w -= (i * ti.getPeriod());
-			r = ti.getHyperTask().getExectime() >0 ? w + ti.getHyperTask().getExectime():0;
+		for (int q=0;q<numJobs;q++){
+			// job q starts no earlier than job q-1
+			start = this.calculateNonPreemptiveStartingTime(ts, i, q, warmStart ? start : 0,
+					startingTimeLimit(limit, q, ts.period[i], ts.hyperExectime[i]));
+			w = IntervalMath.toInt(start - ((long) q * ts.period[i]));
+			r = ts.hyperExectime[i] >0 ? w + ts.hyperExectime[i]:0;
 			if (r > maxR) {
 				maxR = r;
 			}
+			if (maxR > limit) {
+				break;
+			}
 		}
 
 		return maxR;
 	}
 
+	/**
+	 * Latest starting time of job q meeting a response time limit. Hypertasks
+	 * without execution have a response time of zero whatever their starting time.
+	 */
+	static int startingTimeLimit(int limit, int q, int period, int exectime){
+		if (exectime == 0 || limit == Integer.MAX_VALUE){
+			return Integer.MAX_VALUE;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, (long) limit + (long) q * period - exectime);
+	}
+
 	public int calculateGuestTaskResponseTime(MixedTrustTask ti)
+	{
+		CompiledTaskSet ts = compile();
+		return calculateGuestTaskResponseTime(ts, ts.indexOf(ti));
+	}
+
+	public int calculateGuestTaskResponseTime(CompiledTaskSet ts, int i)
 	{
 		int r=0;
 		int prevR=0;
+		int hpEnd = ts.higherPriorityEnd[i];
 
-		do{
+		do {
+			countIteration();
 			prevR = r;
-			r = ti.getGuestTask().getExectime(ti.getGuestTask().getCritcality());
+			long s = ts.guestExectime[i];
 			if (prevR == 0){
-				prevR = r;
+				prevR = ts.guestExectime[i];
 			}
-			// all hypertasks
-			for (MixedTrustTask tj:this.decreasingHypertaskPriority){
-				// except ti
-				if (tj.getUniqueId() == ti.getUniqueId()) {
+			// all hypertasks except ti
+			for (int j=0;j<ts.size;j++){
+				if (j == i) {
 					continue;
 				}
-				r += ((int)Math.ceil(((double)prevR)/((double)tj.getPeriod()))) * tj.getHyperTask().getExectime();
+				s = IntervalMath.add(s, IntervalMath.requestBound(prevR, ts.period[j], ts.hyperExectime[j]));
 			}
 
 			// all higher priority guest tasks
-			HigherPriority hp = new HigherPriority(decreasingHypertaskPriority,ti);
-			while(hp.hasNext()){
-				MixedTrustTask tj = hp.next();
-				r += ((int)Math.ceil(((double)prevR)/((double)tj.getPeriod()))) * tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality());
+			for (int j=0;j<hpEnd;j++){
+				s = IntervalMath.add(s, IntervalMath.requestBound(prevR, ts.period[j], ts.guestExectime[j]));
 			}
-		} while(prevR != r && r <= ti.getDeadline());
+			r = IntervalMath.toInt(s);
+		} while(prevR != r && r <= ts.deadline[i]);
 
 		return r;
 	}
 
 	public boolean isPredictiveHypertaskSetSchedulable(){
 		int r=0;
+		CompiledTaskSet ts = compile();
+		beginAnalysis();
 		// schedule hyper tasks
-		for (MixedTrustTask ti:decreasingHypertaskPriority){
-			r = calculatePredictiveHypertaskNonPreemptiveResponseTime(ti);
-			ti.getHyperTask().setResponseTime(r);
-			if (r> ti.getDeadline()){
+		for (int i=0;i<ts.size;i++){
+			try {
+				r = calculatePredictiveHypertaskNonPreemptiveResponseTime(ts, i, ts.deadline[i]);
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
+			ts.tasks[i].getHyperTask().setResponseTime(r);
+			if (r> ts.deadline[i]){
 				//Logger.addFailure(decreasingHypertaskPriority, ti, false,r);
 				return false;
 			}
@@ -381,11 +684,21 @@ public class LayeredTrustScheduler {
 
 	public boolean isHypertaskSetSchedulable(){
 		int r=0;
+		int activePeriod=0;
+		CompiledTaskSet ts = compile();
+		beginAnalysis();
 		// schedule hyper tasks
-		for (MixedTrustTask ti:decreasingHypertaskPriority){
-			r = calculateHypertaskNonPreemptiveResponseTime(ti);
-			ti.getHyperTask().setResponseTime(r);
-			if (r> ti.getDeadline()){
+		for (int i=0;i<ts.size;i++){
+			try {
+				int seed = (warmStart && i>0 && ts.canSeedFrom(i, i-1) && ts.hyperExectime[i] > 0) ? activePeriod : 0;
+				activePeriod = calculateHyperTaskNonPreemptiveActivePeriod(ts, i, seed);
+				r = calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i, activePeriod, ts.deadline[i]);
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
+			ts.tasks[i].getHyperTask().setResponseTime(r);
+			if (r> ts.deadline[i]){
 				//Logger.addFailure(decreasingHypertaskPriority, ti, false,r);
 				return false;
 			}
@@ -394,10 +707,18 @@ public class LayeredTrustScheduler {
 	}
 
 	public boolean isGuesttaskSetSchedulable(){
-		for (MixedTrustTask ti:decreasingHypertaskPriority){
-			int r = calculateGuestTaskResponseTime(ti);
-			ti.getGuestTask().setNormalResponseTime(r);
-			if (r > ti.getEnforcementTimeout()){
+		CompiledTaskSet ts = compile();
+		beginAnalysis();
+		for (int i=0;i<ts.size;i++){
+			int r;
+			try {
+				r = calculateGuestTaskResponseTime(ts, i);
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
+			ts.tasks[i].getGuestTask().setNormalResponseTime(r);
+			if (r > ts.enforcementTimeout[i]){
 				//Logger.addFailure(decreasingHypertaskPriority, ti, false,r);
 				return false;
 			}
@@ -499,8 +820,53 @@ public class LayeredTrustScheduler {
 		}
 	}
 
+	/**
+	 * Two hypertasks with a utilization of 1 and blocking: the active period of the
+	 * lowest priority one grows by a period in every iteration, stopped by the
+	 * divergence check instead of running until the int overflow.
+	 */
+	public static void testDivergence()
+	{
+		MixedTrustTask mt1 = new MixedTrustTask(
+				1000, // period
+				1000, // deadline
+				0, // guest criticality
+				new int[] {0}, // guest exectimes (crit -> exectime)
+				1, // hyper criticality
+				500, // hyper exectime
+				2);   // priority
+		MixedTrustTask mt2 = new MixedTrustTask(
+				1000, // period
+				1000, // deadline
+				0, // guest criticality
+				new int[] {0}, // guest exectimes (crit -> exectime)
+				1, // hyper criticality
+				500, // hyper exectime
+				1);   // priority
+		MixedTrustTask mt3 = new MixedTrustTask(
+				100000, // period
+				100000, // deadline
+				0, // guest criticality
+				new int[] {10}, // guest exectimes (crit -> exectime)
+				1, // hyper criticality
+				7, // hyper exectime
+				0);   // priority
+		LayeredTrustScheduler sched  = new LayeredTrustScheduler();
+		sched.add(mt1);
+		sched.add(mt2);
+		sched.add(mt3);
+
+		System.out.println("Hypertasks schedulable = "+sched.isHypertaskSetSchedulable());
+		System.out.println("Iterations = "+sched.getMaxAnalysisIterations()+" divergences = "+sched.getDivergences());
+
+		sched.setIterationBudget(100);
+		System.out.println("Hypertasks schedulable (budget 100) = "+sched.isHypertaskSetSchedulable());
+		System.out.println("Exhausted budgets = "+sched.getExhaustedBudgets());
+	}
+
 	public static void main(String args[])
 	{
 		testLayeredTrust();
+		testDivergence();
 	}
 }
@@ -27,33 +27,23 @@
 
 package edu.cmu.sei.mtzsrm;
 
+import java.util.BitSet;
 import java.util.TreeSet;
 
 public class LayeredTrustZSRMScheduler extends LayeredTrustScheduler {
 
 	public TreeSet<MixedTrustTask> getDelayableHigherPriorityHigherCriticality(TreeSet<MixedTrustTask> set, MixedTrustTask ti){
-		TreeSet<MixedTrustTask>subset = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
-
-		TreeSet<MixedTrustTask> tihplc = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
-		HigherPriorityLowerGuestCriticality tihplci = new HigherPriorityLowerGuestCriticality(set,ti);
-		while (tihplci.hasNext()) {
-			tihplc.add(tihplci.next());
+		if (!set.contains(ti)){
+			set = new TreeSet<MixedTrustTask>(set);
+			set.add(ti);
 		}
+		CriticalityRelations relations = new CriticalityRelations(set);
+		BitSet delayable = relations.delayable[relations.indexOf(ti)];
 
-		HigherPriorityHigherSameGuestCriticality tihphsci = new HigherPriorityHigherSameGuestCriticality(set,ti);
-		while (tihphsci.hasNext()){
-			MixedTrustTask tj = tihphsci.next();
-			TreeSet<MixedTrustTask> tjhplc = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
-			HigherPriorityLowerGuestCriticality tjhplci = new HigherPriorityLowerGuestCriticality(set,tj);
-			while(tjhplci.hasNext()) {
-				tjhplc.add(tjhplci.next());
-			}
-			tjhplc.retainAll(tihplc);
-			if (!tjhplc.isEmpty()){
-				subset.add(tj);
-			}
+		TreeSet<MixedTrustTask>subset = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
+		for (int j=delayable.nextSetBit(0);j>=0;j=delayable.nextSetBit(j+1)){
+			subset.add(relations.tasks[j]);
 		}
-
 		return subset;
 	}
 
@@ -63,6 +53,13 @@ public class LayeredTrustZSRMScheduler extends LayeredTrustScheduler {
 	 * @return
 	 */
 	public int calculateCriticalResponseTime(MixedTrustTask ti){
+		return calculateCriticalResponseTime(ti, new CriticalityRelations(this.decreasingHypertaskPriority));
+	}
+
+	/**
+	 * Critical response time with the relations of the task set, built once per analysis
+	 */
+	int calculateCriticalResponseTime(MixedTrustTask ti, CriticalityRelations relations){
 		int r=0;
 		int prevR=0;
 
@@ -72,74 +69,57 @@ public class LayeredTrustZSRMScheduler extends LayeredTrustScheduler {
 		if (ti.getGuestTask().getExecCritical() == 0) {
 			return 0;
 		}
+		int i = relations.indexOf(ti);
 
 		do {
+			countIteration();
 			prevR = r;
 
 			// own execution in critical mode
-			r = ti.getGuestTask().getExecCritical();
+			long s = ti.getGuestTask().getExecCritical();
 			if (prevR == 0){
-				prevR = r;
+				prevR = ti.getGuestTask().getExecCritical();
 			}
 
 			// Lower priority hyper-task preemptions
 			LowerPriority klp = new LowerPriority(this.increasingHypertaskPriority,ti);
 			while (klp.hasNext()){
 				MixedTrustTask tj = klp.next();
-				r += positiveCeilOrZero(((double)prevR)/((double)tj.getPeriod()))
-						* tj.getHyperTask().getExectime();
+				s = IntervalMath.add(s, IntervalMath.requestBound(prevR, tj.getPeriod(), tj.getHyperTask().getExectime()));
 			}
 
 			// Delayable Higher Priority Higher Criticality preemptions (with carry in)
-			TreeSet<MixedTrustTask> delayableHPLC = getDelayableHigherPriorityHigherCriticality(this.decreasingHypertaskPriority,ti);
-			for(MixedTrustTask tj:delayableHPLC){
-				r += (Math.max(
-						positiveCeilOrZero(
-								(prevR -(tj.getPeriod()-tj.getEnforcementTimeout())
-								)
-								/((double)tj.getPeriod()))
-								* tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-								+positiveCeilOrZero(prevR/((double)tj.getPeriod())) * tj.getHyperTask().getExectime()
+			BitSet delayable = relations.delayable[i];
+			for (int j=delayable.nextSetBit(0);j>=0;j=delayable.nextSetBit(j+1)){
+				MixedTrustTask tj = relations.tasks[j];
+				long carryIn = (long) prevR+tj.getGuestTask().getZeroSlack()+tj.getGuestTask().getCriticalResponseTime()
+						-tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality());
+				s = IntervalMath.add(s, Math.max(
+						IntervalMath.offsetRequestBound(prevR, tj.getPeriod()-tj.getEnforcementTimeout(), tj.getPeriod(),
+								tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality()))
+						+ IntervalMath.requestBound(prevR, tj.getPeriod(), tj.getHyperTask().getExectime())
 						,
-						positiveCeilOrZero(
-								(prevR+tj.getGuestTask().getZeroSlack()+tj.getGuestTask().getCriticalResponseTime()
-								-tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-								)
-								/((double)tj.getPeriod())
-								)
-						*tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-						+positiveCeilOrZero(
-								(prevR+tj.getGuestTask().getZeroSlack()+tj.getGuestTask().getCriticalResponseTime()
-								-tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-								)-tj.getEnforcementTimeout()
-								/((double)tj.getPeriod())
-								)
-						*tj.getHyperTask().getExectime()
+						IntervalMath.multiply(IntervalMath.positiveCeilDiv(carryIn, tj.getPeriod()),
+								tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality()))
+						// ceil(carryIn - E/T), i.e., only the enforcement timeout is divided by the period
+						+ IntervalMath.multiply(
+								IntervalMath.positiveOrZero(carryIn - IntervalMath.floorDiv(tj.getEnforcementTimeout(), tj.getPeriod())),
+								tj.getHyperTask().getExectime())
 						));
 			}
 
 			// Non-Delayable higher priority higher or same criticality
-			TreeSet<MixedTrustTask>hphsc = new TreeSet<MixedTrustTask>(new DecreasingPriorityComparator());
-			hphsc.addAll(this.decreasingHypertaskPriority);
-			hphsc.removeAll(delayableHPLC);
-			HigherPriorityHigherSameGuestCriticality hphsci = new HigherPriorityHigherSameGuestCriticality(hphsc,ti);
-			while(hphsci.hasNext()){
-				MixedTrustTask tj = hphsci.next();
-				r += (Math.max(
-						positiveCeilOrZero(
-								(prevR - (tj.getPeriod() - tj.getEnforcementTimeout())
-								)
-								/((double)tj.getPeriod()))
-						*tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-						+positiveCeilOrZero(prevR/((double)tj.getPeriod())
-								)
-						*tj.getHyperTask().getExectime()
+			BitSet nonDelayable = relations.nonDelayable[i];
+			for (int j=nonDelayable.nextSetBit(0);j>=0;j=nonDelayable.nextSetBit(j+1)){
+				MixedTrustTask tj = relations.tasks[j];
+				s = IntervalMath.add(s, Math.max(
+						IntervalMath.offsetRequestBound(prevR, tj.getPeriod()-tj.getEnforcementTimeout(), tj.getPeriod(),
+								tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality()))
+						+ IntervalMath.requestBound(prevR, tj.getPeriod(), tj.getHyperTask().getExectime())
 						,
-						positiveCeilOrZero(prevR/((double)tj.getPeriod())
-								)
-						* tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality())
-						+ positiveCeilOrZero((prevR-tj.getEnforcementTimeout())
-								/((double)tj.getPeriod()))
+						IntervalMath.requestBound(prevR, tj.getPeriod(),
+								tj.getGuestTask().getExectime(tj.getGuestTask().getCritcality()))
+						+ IntervalMath.positiveCeilDiv(prevR-tj.getEnforcementTimeout(), tj.getPeriod())
 						));
 			}
 
@@ -147,210 +127,70 @@ public class LayeredTrustZSRMScheduler extends LayeredTrustScheduler {
 			LowerPriorityHigherGuestCriticality lphc = new LowerPriorityHigherGuestCriticality(this.increasingHypertaskPriority,ti);
 			while(lphc.hasNext()){
 				MixedTrustTask tj = lphc.next();
-				r += (Math.max(
+				s += (Math.max(
 						0,
 						tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
 						-tj.getGuestTask().getExecNormal()
 						));
 			}
+			r = IntervalMath.toInt(s);
 		} while (prevR != r && r <= ti.getEnforcementTimeout());
 		return r;
 	}
 
+	/**
+	 * Normal mode interference over the zero slack of ti: the lower priority hypertasks,
+	 * the worst of interleavings 1, 2, 4 and 6 of each higher priority lower criticality
+	 * task, and the worst of interleavings 1 and 2 of each higher priority higher or same
+	 * criticality task (see {@link PairwiseInterference}). Interleavings 3 and 5 are not
+	 * applicable to these tasks.
+	 */
 	public int calculateNormalModeInterference(MixedTrustTask ti){
-		int I=0;
-
-		// Lower priority hyper-task preemptions
-		LowerPriority klp = new LowerPriority(this.increasingHypertaskPriority,ti);
-		while (klp.hasNext()){
-			MixedTrustTask tj = klp.next();
-			I += ((int)Math.ceil(ti.getGuestTask().getZeroSlack()/((double)tj.getPeriod()))
-					*tj.getHyperTask().getExectime());
-		}
-
-		int [] Ii = new int[4];
-		HigherPriorityLowerGuestCriticality hplc = new HigherPriorityLowerGuestCriticality(this.decreasingHypertaskPriority,ti);
-		while(hplc.hasNext()){
-			MixedTrustTask tj = hplc.next();
-
-			Ii[0] = calculateInterferenceInterleaving1(ti,tj);
-			Ii[1] = calculateInterferenceInterleaving2(ti,tj);
-			// not applicable for lower-criticality tj
-			//Ii[2] = calculateInterferenceInterleaving3(ti,tj);
-			Ii[2] = calculateInterferenceInterleaving4(ti,tj);
-			// Not applicable for lower-criticality tj
-			//Ii[4] = calculateInterferenceInterleaving5(ti,tj);
-			Ii[3] = calculateInterferenceInterleaving6(ti,tj);
-
-			int max = Ii[0];
-			for (int i=1;i<Ii.length;i++){
-				if (max < Ii[i]) {
-					max = Ii[i];
-				}
-			}
-			I += max;
-		}
-
-		HigherPriorityHigherSameGuestCriticality hphsc = new HigherPriorityHigherSameGuestCriticality(this.decreasingHypertaskPriority,ti);
-		while(hphsc.hasNext()){
-			MixedTrustTask tj = hphsc.next();
-			Ii[0] = calculateInterferenceInterleaving1(ti,tj);
-			Ii[1] = calculateInterferenceInterleaving2(ti,tj);
-			//Ii[2] = calculateInterferenceInterleaving3(ti,tj);
-			int max = Ii[0];
-			for (int i=1;i<2;i++){
-				if (max < Ii[i]) {
-					max = Ii[i];
-				}
-			}
-			I += max;
-		}
-		return I;
-	}
-
-	private int calculateInterferenceInterleaving6(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
-
-		I = tj.getHyperTask().getExectime()
-			+ positiveCeilOrZero(
-				(ti.getGuestTask().getZeroSlack()
-				 -(tj.getPeriod()
-					-(tj.getEnforcementTimeout()
-					  +tj.getHyperTask().getResponseTime()
-					  -tj.getHyperTask().getExectime()
-					 )
-				  )
-				)
-				/ ((double)tj.getPeriod())
-				)
-			*tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-			+ positiveCeilOrZero(
-					(ti.getGuestTask().getZeroSlack()
-					  +(tj.getHyperTask().getResponseTime()
-						-tj.getHyperTask().getExectime()
-					   )
-					  -tj.getPeriod()
-					)
-					/ ((double)tj.getPeriod())
-					)
-			* tj.getHyperTask().getExectime();
-		return I;
+		CriticalityRelations relations = new CriticalityRelations(this.decreasingHypertaskPriority);
+		return new PairwiseInterference(relations, relations.indexOf(ti))
+				.getInterference(ti.getGuestTask().getZeroSlack());
 	}
 
 	@SuppressWarnings("unused")
 	private int calculateInterferenceInterleaving5(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
+		long I=0;
 
 		I = tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
 			- tj.getGuestTask().getExecNormal()
-			+ positiveCeilOrZero(
-					(ti.getGuestTask().getZeroSlack()
-					-(
-					tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
+			+ IntervalMath.offsetRequestBound(ti.getGuestTask().getZeroSlack(),
+					(long) tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
 					- tj.getGuestTask().getExecNormal()
-					)
-					-(
-					tj.getPeriod()
-					-tj.getEnforcementTimeout()
-					)
-					)
-					/ ((double)tj.getPeriod())
-				)
-				* tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-			+ positiveCeilOrZero(
-					(ti.getGuestTask().getZeroSlack()
-					  -(tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-						-tj.getGuestTask().getExecNormal()
-						)
-					)
-					/ ((double)tj.getPeriod())
-				)
-				*tj.getHyperTask().getExectime();
-		return I;
-	}
-
-	private int calculateInterferenceInterleaving4(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
-
-		I = positiveCeilOrZero(
-				(ti.getGuestTask().getZeroSlack()
-					+ tj.getGuestTask().getNormalResponseTime()
-					-tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-				)
-				/ tj.getPeriod()
-				)
-			* tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-			+ positiveCeilOrZero(
-					(ti.getGuestTask().getZeroSlack()
-					 +tj.getGuestTask().getNormalResponseTime()
-					 -tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-					 -tj.getEnforcementTimeout()
-					)
-					/tj.getPeriod()
-					)
-			*tj.getHyperTask().getExectime();
-
-		return I;
+					+ tj.getPeriod()
+					- tj.getEnforcementTimeout(),
+					tj.getPeriod(),
+					tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality()))
+			+ IntervalMath.offsetRequestBound(ti.getGuestTask().getZeroSlack(),
+					(long) tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
+					- tj.getGuestTask().getExecNormal(),
+					tj.getPeriod(),
+					tj.getHyperTask().getExectime());
+		return IntervalMath.toInt(I);
 	}
 
 	@SuppressWarnings("unused")
 	private int calculateInterferenceInterleaving3(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
+		long I=0;
 
 		I = tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
 				- tj.getGuestTask().getExecNormal()
 				+ tj.getHyperTask().getExectime()
-				+ positiveCeilOrZero(
-						(ti.getGuestTask().getZeroSlack()
-						-(tj.getPeriod()-tj.getGuestTask().getZeroSlack()))
-						/ ((double)tj.getPeriod())
-					)
-				*tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-				+ positiveCeilOrZero(
-						(ti.getGuestTask().getZeroSlack()
-						-(tj.getPeriod()
-						  -tj.getGuestTask().getZeroSlack()
-						 )
-						-tj.getEnforcementTimeout()
-						)
-						/((double)tj.getPeriod())
-					)
-				*tj.getHyperTask().getExectime();
-
-		return I;
-	}
-
-	private int calculateInterferenceInterleaving2(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
-
-		I = (positiveCeilOrZero((ti.getGuestTask().getZeroSlack()
-				-(tj.getPeriod()-tj.getEnforcementTimeout()))
-				/ ((double)tj.getPeriod())
-				)
-				* tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-				+
-				((int)Math.ceil(ti.getGuestTask().getZeroSlack()
-						/((double)tj.getPeriod())))
-				*tj.getHyperTask().getExectime()
-				);
-		return I;
-	}
-
-	private int calculateInterferenceInterleaving1(MixedTrustTask ti, MixedTrustTask tj) {
-		int I=0;
-
-		I = (((int)Math.ceil(ti.getGuestTask().getZeroSlack()
-				/((double)tj.getPeriod())))
-				*tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality())
-				)
-				+
-				(positiveCeilOrZero((ti.getGuestTask().getZeroSlack()
-						-tj.getEnforcementTimeout())
-						/((double)tj.getPeriod()))
-				*tj.getHyperTask().getExectime()
-				);
-
-		return I;
+				+ IntervalMath.offsetRequestBound(ti.getGuestTask().getZeroSlack(),
+						(long) tj.getPeriod()-tj.getGuestTask().getZeroSlack(),
+						tj.getPeriod(),
+						tj.getGuestTask().getExectime(ti.getGuestTask().getCritcality()))
+				+ IntervalMath.offsetRequestBound(ti.getGuestTask().getZeroSlack(),
+						(long) tj.getPeriod()
+						-tj.getGuestTask().getZeroSlack()
+						+tj.getEnforcementTimeout(),
+						tj.getPeriod(),
+						tj.getHyperTask().getExectime());
+
+		return IntervalMath.toInt(I);
 	}
 
 	public int calculateNormalModeSlack(MixedTrustTask ti){
@@ -412,31 +252,40 @@ public class LayeredTrustZSRMScheduler extends LayeredTrustScheduler {
 
 		TreeSet<MixedTrustTask> decCrit = new TreeSet<MixedTrustTask>(new DecreasingGuestCriticalityPriorityComparator());
 		decCrit.addAll(this.decreasingHypertaskPriority);
+		CriticalityRelations relations = new CriticalityRelations(this.decreasingHypertaskPriority);
+		beginAnalysis();
 
 		// schedule tasks in decreasing order of guest criticality and then priority
 		for (MixedTrustTask ti:decCrit){
 			// zero-slack recurrent loop
 			int Z=0;
 			int prevZ=0;
-
-			do {
-				prevZ = Z;
-				ti.getGuestTask().setCriticalResponseTime(this.calculateCriticalResponseTime(ti));
-				Z = ti.getEnforcementTimeout() - ti.getGuestTask().getCriticalResponseTime();
-				if (Z>=0){
-					ti.getGuestTask().setZeroSlack(Z);
-					ti.getGuestTask().setNormalModeInterference(this.calculateNormalModeInterference(ti));
-					ti.getGuestTask().setNormalModeSlack(Math.max(0,
-							ti.getGuestTask().getZeroSlack()
-							- ti.getGuestTask().getNormalModeInterference()
-							- ti.getGuestTask().getExecNormal()
-							)
-							);
-					ti.getGuestTask().setExecCritical(this.recalculateCriticalExectime(ti));
-					ti.getGuestTask().setExecNormal(this.recalculateNormalExectime(ti));
-				}
-				ti.getGuestTask().setNormalResponseTime(this.recalculateNormalResponseTime(ti));
-			} while (prevZ != Z && Z >=0);
+			PairwiseInterference interference = new PairwiseInterference(relations, relations.indexOf(ti));
+
+			try {
+				do {
+					countIteration();
+					prevZ = Z;
+					ti.getGuestTask().setCriticalResponseTime(this.calculateCriticalResponseTime(ti, relations));
+					Z = ti.getEnforcementTimeout() - ti.getGuestTask().getCriticalResponseTime();
+					if (Z>=0){
+						ti.getGuestTask().setZeroSlack(Z);
+						ti.getGuestTask().setNormalModeInterference(interference.getInterference(Z));
+						ti.getGuestTask().setNormalModeSlack(Math.max(0,
+								ti.getGuestTask().getZeroSlack()
+								- ti.getGuestTask().getNormalModeInterference()
+								- ti.getGuestTask().getExecNormal()
+								)
+								);
+						ti.getGuestTask().setExecCritical(this.recalculateCriticalExectime(ti));
+						ti.getGuestTask().setExecNormal(this.recalculateNormalExectime(ti));
+					}
+					ti.getGuestTask().setNormalResponseTime(this.recalculateNormalResponseTime(ti));
+				} while (prevZ != Z && Z >=0);
+			} catch (ArithmeticException e) {
+				// busy window beyond the int range, see IntervalMath
+				return false;
+			}
 
 			if (Z <0){
 				return false;
@@ -0,0 +1,480 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Audsley's optimal priority assignment for the tasks of a {@link LayeredTrustExactScheduler}.
+ * Priorities are assigned from the lowest level up: at each level, the first unassigned
+ * task (in deadline-monotonic order) that is schedulable assuming all the other unassigned
+ * tasks have higher priority gets the level.
+ *
+ * The hypertask test at a level only depends on the set of higher priority tasks and
+ * the blocking of the lower priority tasks, hence it is the exact test. The guest task
+ * test also depends on the enforcement timeouts of the higher priority tasks, which
+ * depend on their relative order, unknown at that point. The level test bounds each of
+ * them with the hypertask response time below every other unassigned task (computed once
+ * per level and shared by all the candidates) and with the hypertask execution plus the
+ * blocking of the assigned tasks. Therefore the assignment is optimal for the
+ * hypertasks and sufficient for the guest tasks: a successful assignment passes the exact
+ * analysis, but the search may fail where a feasible ordering exists. In that case the
+ * deadline-monotonic assignment is checked as well, so the result is never worse.
+ *
+ * Candidates are pruned with response time lower bounds before running the fixed-point
+ * iterations, and the level tests are memoized by the task and the set of lower priority
+ * tasks while the task set does not change.
+ */
+public class OptimalPriorityAssignment {
+
+	final LayeredTrustExactScheduler scheduler;
+
+	// level tests by task and set of lower priority tasks of the memoized task set
+	final HashMap<LevelKey, Boolean> levelTests = new HashMap<LevelKey, Boolean>();
+	CompiledTaskSet memoized = null;
+
+	long tests = 0;
+	long memoHits = 0;
+	long pruned = 0;
+
+	// working state of an assignment: the unassigned tasks are at the indices [0, unassigned)
+	CompiledTaskSet ts;
+	int[] id;
+	int unassigned;
+	int blocking;
+	long unassignedHyperExectime;
+	long unassignedMaxExectime;
+	long assignedHyperExectime;
+	BitSet lower;
+
+	// enforcement timeout bounds of the unassigned tasks, by task id, valid for boundsLevel
+	int[] minEnforcementTimeout;
+	int[] maxEnforcementTimeout;
+	int boundsLevel;
+	int[] maxOtherHyperExectime;
+
+	public OptimalPriorityAssignment(LayeredTrustExactScheduler scheduler){
+		this.scheduler = scheduler;
+	}
+
+	public long getTests(){
+		return tests;
+	}
+
+	public long getMemoHits(){
+		return memoHits;
+	}
+
+	public long getPruned(){
+		return pruned;
+	}
+
+	/**
+	 * Assigns the priorities of the tasks of the scheduler and returns true if it
+	 * finds a schedulable assignment, otherwise leaves the priorities unchanged and
+	 * returns false.
+	 */
+	public boolean assignPriorities(){
+		// the task ids are the indices in deadline-monotonic order, lowest priority
+		// first, which is also the order of the candidates at every level
+		TreeSet<MixedTrustTask> decreasingDeadline = new TreeSet<MixedTrustTask>(new DecreasingDeadlineComparator());
+		decreasingDeadline.addAll(scheduler.getTaskset());
+		CompiledTaskSet original = CompiledTaskSet.compile(decreasingDeadline);
+		int n = original.size;
+		if (original.utilization >= 1.0){
+			return false;
+		}
+		if (memoized == null || !sameTaskSet(memoized, original)){
+			levelTests.clear();
+			memoized = original;
+		}
+
+		ts = new CompiledTaskSet(original);
+		id = new int[n];
+		int[] position = new int[n];
+		int maxC=0;
+		int secondMaxC=0;
+		unassignedHyperExectime = 0;
+		unassignedMaxExectime = 0;
+		for (int k=0;k<n;k++){
+			id[k] = k;
+			position[k] = k;
+			unassignedHyperExectime += ts.hyperExectime[k];
+			unassignedMaxExectime += Math.max(ts.guestExectime[k], ts.hyperExectime[k]);
+			if (ts.hyperExectime[k] >= maxC){
+				secondMaxC = maxC;
+				maxC = ts.hyperExectime[k];
+			} else if (ts.hyperExectime[k] > secondMaxC){
+				secondMaxC = ts.hyperExectime[k];
+			}
+		}
+		maxOtherHyperExectime = new int[n];
+		for (int k=0;k<n;k++){
+			maxOtherHyperExectime[k] = ts.hyperExectime[k] == maxC ? secondMaxC : maxC;
+		}
+		minEnforcementTimeout = new int[n];
+		maxEnforcementTimeout = new int[n];
+		boundsLevel = -1;
+		unassigned = n;
+		blocking = 0;
+		assignedHyperExectime = 0;
+		lower = new BitSet(n);
+
+		List<MixedTrustTask> increasingPriority = new ArrayList<MixedTrustTask>(n);
+		for (int level=0;level<n;level++){
+			int last = unassigned-1;
+			boolean assigned = false;
+			for (int candidate=0;candidate<n && !assigned;candidate++){
+				if (lower.get(candidate)){
+					continue;
+				}
+				// move the candidate right above the assigned tasks
+				int p = position[candidate];
+				ts.swap(p, last);
+				position[id[last]] = p;
+				id[p] = id[last];
+				position[candidate] = last;
+				id[last] = candidate;
+
+				LevelKey key = new LevelKey(candidate, lower);
+				Boolean schedulable = levelTests.get(key);
+				if (schedulable == null){
+					schedulable = isSchedulableAtLevel(level);
+					levelTests.put(new LevelKey(candidate, (BitSet) lower.clone()), schedulable);
+				} else {
+					memoHits++;
+				}
+				if (schedulable){
+					assigned = true;
+					unassigned--;
+					lower.set(candidate);
+					blocking = Math.max(blocking, ts.hyperExectime[last]);
+					unassignedHyperExectime -= ts.hyperExectime[last];
+					unassignedMaxExectime -= Math.max(ts.guestExectime[last], ts.hyperExectime[last]);
+					assignedHyperExectime += ts.hyperExectime[last];
+					increasingPriority.add(ts.tasks[last]);
+				}
+			}
+			if (!assigned){
+				return assignDeadlineMonotonicPriorities();
+			}
+		}
+
+		scheduler.assignPriorities(increasingPriority);
+		return true;
+	}
+
+	/**
+	 * Falls back to the deadline-monotonic assignment, which the bounds of the
+	 * guest task test may reject, restoring the priorities if it is not schedulable.
+	 */
+	private boolean assignDeadlineMonotonicPriorities(){
+		List<MixedTrustTask> tasks = new ArrayList<MixedTrustTask>(scheduler.getTaskset());
+		int[] priorities = new int[tasks.size()];
+		for (int k=0;k<priorities.length;k++){
+			priorities[k] = tasks.get(k).getPriority();
+		}
+
+		scheduler.assignDeadlineMonotonicPriorities();
+		if (scheduler.isSchedulable()){
+			return true;
+		}
+
+		for (int k=0;k<priorities.length;k++){
+			scheduler.remove(tasks.get(k));
+			tasks.get(k).setPriority(priorities[k]);
+			scheduler.add(tasks.get(k));
+		}
+		return false;
+	}
+
+	/**
+	 * Test of the task at the index right above the assigned tasks, assuming the
+	 * other unassigned tasks have higher priority.
+	 */
+	boolean isSchedulableAtLevel(int level){
+		int i = unassigned-1;
+		prepareLevel(i);
+
+		// hypertask response time lower bound: blocking, one job of every higher priority hypertask and its own
+		if (ts.hyperExectime[i] > 0 && (long) blocking + unassignedHyperExectime > ts.deadline[i]){
+			pruned++;
+			return false;
+		}
+
+		tests++;
+		scheduler.beginAnalysis();
+		try {
+			int r = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, i,
+					scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, i), ts.deadline[i]);
+			if (r > ts.deadline[i]){
+				return false;
+			}
+			ts.enforcementTimeout[i] = ts.deadline[i] - r;
+
+			if (ts.guestExectime[i] == 0){
+				return true;
+			}
+
+			// guest response time lower bound: its own job, one job of every other task
+			if (ts.guestExectime[i] + assignedHyperExectime
+					+ unassignedMaxExectime - Math.max(ts.guestExectime[i], ts.hyperExectime[i]) > ts.enforcementTimeout[i]){
+				pruned++;
+				return false;
+			}
+
+			calculateEnforcementTimeoutBounds(level);
+			prepareLevel(i);
+
+			return Math.max(
+					calculateGuestTaskResponseTime(i, false),
+					calculateGuestTaskResponseTime(i, true)) <= ts.enforcementTimeout[i];
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			return false;
+		}
+	}
+
+	/**
+	 * Makes the unassigned tasks other than the one at index i its higher priority
+	 * tasks and the assigned tasks its lower priority tasks.
+	 */
+	private void prepareLevel(int i){
+		ts.higherPriorityEnd[i] = i;
+		ts.lowerPriorityStart[i] = unassigned;
+		ts.maxLowerPriorityHyperExectime[i] = blocking;
+		ts.maxLowerPriorityPredictiveExectime[i] = blocking;
+	}
+
+	/**
+	 * Bounds of the enforcement timeouts of the unassigned tasks once they get
+	 * priorities above the level. The smallest timeout comes from the largest hypertask
+	 * response time, with every other unassigned task at higher priority and blocked by
+	 * the largest execution of the other tasks. The largest timeout comes from the
+	 * smallest hypertask response time, which is at least its execution plus the
+	 * blocking of the assigned tasks.
+	 */
+	private void calculateEnforcementTimeoutBounds(int level){
+		if (boundsLevel == level){
+			return;
+		}
+		boundsLevel = level;
+		int last = unassigned-1;
+		for (int k=0;k<unassigned;k++){
+			int j = id[k];
+			if (ts.hyperExectime[k] == 0){
+				minEnforcementTimeout[j] = ts.deadline[k];
+				maxEnforcementTimeout[j] = ts.deadline[k];
+				continue;
+			}
+			maxEnforcementTimeout[j] = Math.max(0, ts.deadline[k] - blocking - ts.hyperExectime[k]);
+
+			ts.swap(k, last);
+			ts.higherPriorityEnd[last] = last;
+			ts.lowerPriorityStart[last] = unassigned;
+			ts.maxLowerPriorityHyperExectime[last] = maxOtherHyperExectime[j];
+			int r = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, last,
+					scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, last), ts.deadline[last]);
+			ts.swap(k, last);
+			minEnforcementTimeout[j] = Math.max(0, ts.deadline[k] - r);
+		}
+	}
+
+	private long calculateHigherPriorityRequestBound(int j, long interval){
+		int e = maxEnforcementTimeout[id[j]];
+		long hyperAligned = IntervalMath.requestBound(interval,
+				ts.period[j]-e, ts.period[j],
+				ts.hyperExectime[j], ts.guestExectime[j]);
+		e = minEnforcementTimeout[id[j]];
+		long guestAligned = IntervalMath.requestBound(interval,
+				e, ts.period[j],
+				ts.guestExectime[j], ts.hyperExectime[j]);
+		return Math.max(hyperAligned, guestAligned);
+	}
+
+	private long calculateLowerPriorityRequestBound(long interval){
+		long w=0;
+		for (int j=unassigned;j<ts.size;j++){
+			w = IntervalMath.add(w, IntervalMath.requestBound(interval, ts.period[j], ts.hyperExectime[j]));
+		}
+		return w;
+	}
+
+	/**
+	 * Guest task response time of {@link LayeredTrustExactScheduler#calculateGuestTaskResponseTime(CompiledTaskSet, int, LayeredTrustExactScheduler.Alignment)}
+	 * with the request bounds of the higher priority tasks over their enforcement timeout bounds,
+	 * or a value beyond the enforcement timeout if the response time is beyond it.
+	 */
+	private int calculateGuestTaskResponseTime(int i, boolean alignToHyper){
+		int alignToHyperIndicator = alignToHyper ? 1 : 0;
+		int enforcementTimeout = ts.enforcementTimeout[i];
+
+		// busy period
+		int activeP = ts.guestExectime[i];
+		int prevActiveP = 0;
+		do {
+			scheduler.countIteration();
+			prevActiveP = activeP;
+			long w = calculateLowerPriorityRequestBound(prevActiveP);
+			if (alignToHyper){
+				w = IntervalMath.add(w, IntervalMath.requestBound(prevActiveP,
+						ts.period[i]-enforcementTimeout, ts.period[i],
+						ts.hyperExectime[i], ts.guestExectime[i]));
+			} else {
+				w = IntervalMath.add(w, IntervalMath.requestBound(prevActiveP,
+						enforcementTimeout, ts.period[i],
+						ts.guestExectime[i], ts.hyperExectime[i]));
+			}
+			for (int j=0;j<i;j++){
+				w = IntervalMath.add(w, calculateHigherPriorityRequestBound(j, prevActiveP));
+			}
+			activeP = IntervalMath.toInt(w);
+		} while (activeP != prevActiveP);
+
+		int numJobs = IntervalMath.toInt(IntervalMath.ceilDiv(
+				activeP - alignToHyperIndicator * (ts.period[i]-enforcementTimeout),
+				ts.period[i]));
+
+		int maxR=0;
+		int finishingT=ts.guestExectime[i];
+		for (int q=1;q<=numJobs;q++){
+			long release = (long) (q-1)*ts.period[i]
+					+ alignToHyperIndicator*(ts.period[i]-enforcementTimeout);
+			// job q finishes no earlier than job q-1
+			int prevFinishingT = 0;
+			do {
+				scheduler.countIteration();
+				prevFinishingT = finishingT;
+				if (prevFinishingT - release > enforcementTimeout){
+					return IntervalMath.toInt(prevFinishingT - release);
+				}
+				long w = calculateLowerPriorityRequestBound(prevFinishingT);
+				w = IntervalMath.add(w, (long) q*ts.guestExectime[i]
+						+ (long) (q - 1 + alignToHyperIndicator) * ts.hyperExectime[i]);
+				for (int j=0;j<i;j++){
+					w = IntervalMath.add(w, calculateHigherPriorityRequestBound(j, prevFinishingT));
+				}
+				finishingT = IntervalMath.toInt(w);
+			} while (finishingT != prevFinishingT);
+
+			int r = IntervalMath.toInt(finishingT - release);
+			if (r > maxR){
+				maxR = r;
+			}
+		}
+		return maxR;
+	}
+
+	private static boolean sameTaskSet(CompiledTaskSet a, CompiledTaskSet b){
+		return Arrays.equals(a.tasks, b.tasks)
+				&& Arrays.equals(a.period, b.period)
+				&& Arrays.equals(a.deadline, b.deadline)
+				&& Arrays.equals(a.guestExectime, b.guestExectime)
+				&& Arrays.equals(a.hyperExectime, b.hyperExectime);
+	}
+
+	static final class LevelKey {
+		final int task;
+		final BitSet lower;
+
+		LevelKey(int task, BitSet lower){
+			this.task = task;
+			this.lower = lower;
+		}
+
+		@Override
+		public boolean equals(Object o){
+			if (!(o instanceof LevelKey)){
+				return false;
+			}
+			LevelKey k = (LevelKey) o;
+			return task == k.task && lower.equals(k.lower);
+		}
+
+		@Override
+		public int hashCode(){
+			return 31 * task + lower.hashCode();
+		}
+	}
+
+	/**
+	 * Task set that is not schedulable with deadline-monotonic priorities but is
+	 * schedulable with mt1 at the highest priority.
+	 */
+	public static void testDeadlineMonotonicNotSchedulable(){
+		MixedTrustTask mt1 = new MixedTrustTask(
+				113, // period
+				83, // deadline
+				0, // guest criticality
+				new int[] {8}, // guest exectimes
+				1, // hyper criticality
+				3, // hyper exectime
+				0);   // priority
+		MixedTrustTask mt2 = new MixedTrustTask(
+				170, // period
+				64, // deadline
+				0, // guest criticality
+				new int[] {0}, // guest exectimes
+				1, // hyper criticality
+				22, // hyper exectime
+				0);   // priority
+		MixedTrustTask mt3 = new MixedTrustTask(
+				202, // period
+				191, // deadline
+				0, // guest criticality
+				new int[] {33}, // guest exectimes
+				1, // hyper criticality
+				17, // hyper exectime
+				0);   // priority
+
+		LayeredTrustExactScheduler sched  = new LayeredTrustExactScheduler();
+		sched.add(mt1);
+		sched.add(mt2);
+		sched.add(mt3);
+
+		sched.assignDeadlineMonotonicPriorities();
+		System.out.println("Deadline monotonic schedulable: "+sched.isSchedulable());
+
+		OptimalPriorityAssignment opa = new OptimalPriorityAssignment(sched);
+		System.out.println("Optimal assignment schedulable: "+opa.assignPriorities()+" (level tests: "+opa.getTests()+", pruned: "+opa.getPruned()+")");
+		for (MixedTrustTask t:sched.getTaskset()){
+			System.out.println(t);
+		}
+		System.out.println("Exact analysis schedulable: "+sched.isSchedulable());
+	}
+
+	public static void main(String args[]){
+		testDeadlineMonotonicNotSchedulable();
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.BitSet;
+
+/**
+ * Normal mode interference suffered by a guest task over its zero-slack interval,
+ * as in the ZSRM interleavings of {@link LayeredTrustZSRMScheduler}, with the
+ * parameters of each (ti, tj) pair compiled into a table when the zero-slack
+ * iteration of ti starts. Only the zero slack of ti changes during its iteration,
+ * hence the interference of a zero slack is a few divisions per interfering task,
+ * and the last value is kept for the same zero slack.
+ *
+ * Interleavings 3 and 5 do not apply to the tasks interfering in normal mode (see
+ * LayeredTrustZSRMScheduler.calculateNormalModeInterference(MixedTrustTask)).
+ */
+class PairwiseInterference {
+
+	// lower priority hypertasks
+	final int[] lowerPriorityPeriod;
+	final int[] lowerPriorityHyperExectime;
+
+	// higher priority tasks, with their guest execution at the criticality of ti
+	final boolean[] lowerCriticality;
+	final int[] period;
+	final int[] enforcementTimeout;
+	final int[] guestExectime;
+	final int[] hyperExectime;
+
+	// interleaving 4: window of tj beyond the zero slack of ti
+	final long[] normalWindow;
+
+	// interleaving 6: release offsets of the guest and hypertask jobs of tj
+	final long[] guestOffset;
+	final long[] hyperOffset;
+
+	int zeroSlack = -1;
+	int interference;
+
+	PairwiseInterference(CriticalityRelations relations, int i){
+		MixedTrustTask ti = relations.tasks[i];
+		int criticality = ti.getGuestTask().getCritcality();
+
+		int lpStart = relations.lowerPriorityStart[i];
+		int lpSize = relations.tasks.length - lpStart;
+		lowerPriorityPeriod = new int[lpSize];
+		lowerPriorityHyperExectime = new int[lpSize];
+		for (int k=0;k<lpSize;k++){
+			MixedTrustTask tj = relations.tasks[lpStart+k];
+			lowerPriorityPeriod[k] = tj.getPeriod();
+			lowerPriorityHyperExectime[k] = tj.getHyperTask().getExectime();
+		}
+
+		BitSet lower = relations.higherPriorityLowerCriticality[i];
+		BitSet higherSame = relations.higherPriorityHigherSameCriticality[i];
+		int size = lower.cardinality() + higherSame.cardinality();
+		lowerCriticality = new boolean[size];
+		period = new int[size];
+		enforcementTimeout = new int[size];
+		guestExectime = new int[size];
+		hyperExectime = new int[size];
+		normalWindow = new long[size];
+		guestOffset = new long[size];
+		hyperOffset = new long[size];
+
+		int k=0;
+		for (int j=lower.nextSetBit(0);j>=0;j=lower.nextSetBit(j+1)){
+			lowerCriticality[k] = true;
+			compile(k++, relations.tasks[j], criticality);
+		}
+		for (int j=higherSame.nextSetBit(0);j>=0;j=higherSame.nextSetBit(j+1)){
+			compile(k++, relations.tasks[j], criticality);
+		}
+	}
+
+	private void compile(int k, MixedTrustTask tj, int criticality){
+		period[k] = tj.getPeriod();
+		enforcementTimeout[k] = tj.getEnforcementTimeout();
+		guestExectime[k] = tj.getGuestTask().getExectime(criticality);
+		hyperExectime[k] = tj.getHyperTask().getExectime();
+		normalWindow[k] = (long) tj.getGuestTask().getNormalResponseTime() - guestExectime[k];
+		long hyperDelay = (long) tj.getHyperTask().getResponseTime() - hyperExectime[k];
+		guestOffset[k] = period[k] - (enforcementTimeout[k] + hyperDelay);
+		hyperOffset[k] = period[k] - hyperDelay;
+	}
+
+	/**
+	 * Interference over a zero slack of ti
+	 */
+	int getInterference(int zeroSlack){
+		if (zeroSlack == this.zeroSlack){
+			return interference;
+		}
+
+		long I=0;
+
+		// Lower priority hyper-task preemptions
+		for (int k=0;k<lowerPriorityPeriod.length;k++){
+			I = IntervalMath.add(I, IntervalMath.requestBound(zeroSlack, lowerPriorityPeriod[k], lowerPriorityHyperExectime[k]));
+		}
+
+		for (int k=0;k<period.length;k++){
+			int max = Math.max(interleaving1(k, zeroSlack), interleaving2(k, zeroSlack));
+			if (lowerCriticality[k]){
+				max = Math.max(max, Math.max(interleaving4(k, zeroSlack), interleaving6(k, zeroSlack)));
+			}
+			I += max;
+		}
+
+		interference = IntervalMath.toInt(I);
+		this.zeroSlack = zeroSlack;
+		return interference;
+	}
+
+	// guest jobs released with the zero slack, hypertask jobs E later
+	private int interleaving1(int k, int zeroSlack){
+		return IntervalMath.toInt(IntervalMath.requestBound(zeroSlack, enforcementTimeout[k], period[k],
+				guestExectime[k], hyperExectime[k]));
+	}
+
+	// hypertask jobs released with the zero slack, guest jobs T-E later
+	private int interleaving2(int k, int zeroSlack){
+		return IntervalMath.toInt(IntervalMath.requestBound(zeroSlack, (long) period[k]-enforcementTimeout[k], period[k],
+				hyperExectime[k], guestExectime[k]));
+	}
+
+	private int interleaving4(int k, int zeroSlack){
+		long window = zeroSlack + normalWindow[k];
+
+		// integer division, i.e., the number of jobs is rounded down
+		return IntervalMath.toInt(
+				IntervalMath.multiply(IntervalMath.positiveFloorDiv(window, period[k]), guestExectime[k])
+				+ IntervalMath.multiply(IntervalMath.positiveFloorDiv(window - enforcementTimeout[k], period[k]),
+						hyperExectime[k]));
+	}
+
+	private int interleaving6(int k, int zeroSlack){
+		return IntervalMath.toInt(hyperExectime[k]
+				+ IntervalMath.offsetRequestBound(zeroSlack, guestOffset[k], period[k], guestExectime[k])
+				+ IntervalMath.offsetRequestBound(zeroSlack, hyperOffset[k], period[k], hyperExectime[k]));
+	}
+}
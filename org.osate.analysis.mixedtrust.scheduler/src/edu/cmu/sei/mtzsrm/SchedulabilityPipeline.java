@@ -0,0 +1,275 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Schedulability test of a {@link LayeredTrustExactScheduler} task set that runs a
+ * sequence of stages, from cheap bounds to the exact analysis, until one of them
+ * decides. Every stage is consistent with the exact analysis: a stage only accepts
+ * task sets the exact analysis accepts and only rejects task sets it rejects.
+ *
+ * Response times are only stored in the tasks when the exact stage decides.
+ */
+public class SchedulabilityPipeline {
+
+	public enum Verdict {
+		ACCEPT,
+		REJECT,
+		UNKNOWN
+	};
+
+	public interface Stage {
+		String getName();
+
+		Verdict decide(LayeredTrustExactScheduler scheduler, CompiledTaskSet ts);
+	}
+
+	/**
+	 * Rejects task sets with a utilization of at least 100%, as the exact analysis does.
+	 */
+	public static final Stage UTILIZATION_BOUND = new Stage() {
+		@Override
+		public String getName() {
+			return "utilization bound";
+		}
+
+		@Override
+		public Verdict decide(LayeredTrustExactScheduler scheduler, CompiledTaskSet ts) {
+			return ts.utilization >= 1.0 ? Verdict.REJECT : Verdict.UNKNOWN;
+		}
+	};
+
+	/**
+	 * Rejects task sets in which a task misses its deadline even if every higher
+	 * priority job interferes only once, i.e., the first job of a hypertask waits at
+	 * least for the blocking plus one job of each higher priority hypertask, and the
+	 * first guest job for one job of each higher priority guest task.
+	 */
+	public static final Stage RESPONSE_TIME_LOWER_BOUND = new Stage() {
+		@Override
+		public String getName() {
+			return "response time lower bound";
+		}
+
+		@Override
+		public Verdict decide(LayeredTrustExactScheduler scheduler, CompiledTaskSet ts) {
+			long hyperDemand=0;
+			long guestDemand=0;
+			int hpEnd=0;
+			for (int i=0;i<ts.size;i++){
+				// accumulate the tasks entering the higher priority range of i
+				for (;hpEnd<ts.higherPriorityEnd[i];hpEnd++){
+					hyperDemand += ts.hyperExectime[hpEnd];
+					guestDemand += ts.guestExectime[hpEnd];
+				}
+				long hyperR = 0;
+				if (ts.hyperExectime[i] > 0){
+					hyperR = ts.maxLowerPriorityHyperExectime[i] + hyperDemand + ts.hyperExectime[i];
+					if (hyperR > ts.deadline[i]){
+						return Verdict.REJECT;
+					}
+				}
+				if (ts.guestExectime[i] > 0 && ts.guestExectime[i] + guestDemand > ts.deadline[i] - hyperR){
+					return Verdict.REJECT;
+				}
+			}
+			return Verdict.UNKNOWN;
+		}
+	};
+
+	/**
+	 * Accepts task sets whose linear response time upper bounds meet the deadlines.
+	 * The bounds replace the ceilings of the request bound functions by linear
+	 * functions, ceil(x/T) <= x/T+1, and hold for every job of the busy periods as
+	 * long as the utilization of the interfering tasks plus the task is at most 1.
+	 * The guest bound does not depend on the enforcement timeout of the other tasks
+	 * only if their releases are within a period, hence the stage does not decide
+	 * task sets with deadlines larger than periods.
+	 */
+	public static final Stage RESPONSE_TIME_UPPER_BOUND = new Stage() {
+		@Override
+		public String getName() {
+			return "response time upper bound";
+		}
+
+		@Override
+		public Verdict decide(LayeredTrustExactScheduler scheduler, CompiledTaskSet ts) {
+			if (ts.utilization >= 1.0){
+				return Verdict.UNKNOWN;
+			}
+
+			// prefix sums in priority order to obtain the higher and lower priority terms in constant time
+			double[] hyperDemand = new double[ts.size+1];
+			double[] hyperUtil = new double[ts.size+1];
+			double[] demand = new double[ts.size+1];
+			double[] util = new double[ts.size+1];
+			for (int i=0;i<ts.size;i++){
+				if (ts.deadline[i] > ts.period[i]){
+					return Verdict.UNKNOWN;
+				}
+				hyperDemand[i+1] = hyperDemand[i] + ts.hyperExectime[i];
+				hyperUtil[i+1] = hyperUtil[i] + ts.hyperExectime[i] / ((double) ts.period[i]);
+				demand[i+1] = demand[i] + ts.guestExectime[i] + ts.hyperExectime[i];
+				util[i+1] = util[i] + (ts.guestExectime[i] + ts.hyperExectime[i]) / ((double) ts.period[i]);
+			}
+
+			for (int i=0;i<ts.size;i++){
+				int hpEnd = ts.higherPriorityEnd[i];
+				int lpStart = ts.lowerPriorityStart[i];
+
+				// hypertask: w_q <= (B + q C + sum_hp C_j) / (1 - U_hp) for every job q
+				double hyperR = 0;
+				if (ts.hyperExectime[i] > 0){
+					double hpUtil = hyperUtil[hpEnd];
+					if (hpUtil + ts.hyperExectime[i] / ((double) ts.period[i]) > 1.0){
+						return Verdict.UNKNOWN;
+					}
+					// the response time is an integer, hence bounded by the ceiling of the bound
+					hyperR = Math.ceil((ts.maxLowerPriorityHyperExectime[i] + hyperDemand[hpEnd]) / (1.0 - hpUtil)
+							+ ts.hyperExectime[i]);
+					if (hyperR > ts.deadline[i]){
+						return Verdict.UNKNOWN;
+					}
+				}
+
+				// guest task: lower priority hypertasks and higher priority guest and hypertasks
+				if (ts.guestExectime[i] > 0){
+					double otherUtil = util[hpEnd] + hyperUtil[ts.size] - hyperUtil[lpStart];
+					if (otherUtil + (ts.guestExectime[i] + ts.hyperExectime[i]) / ((double) ts.period[i]) > 1.0){
+						return Verdict.UNKNOWN;
+					}
+					double otherDemand = demand[hpEnd] + hyperDemand[ts.size] - hyperDemand[lpStart];
+					// aligned to the guest task it has to finish by E >= D - hyperR
+					double guestAlignedR = Math.ceil((ts.guestExectime[i] + otherDemand) / (1.0 - otherUtil));
+					// aligned to the hypertask it has to finish by T after the previous hypertask release
+					double hyperAlignedF = Math.ceil((ts.guestExectime[i] + ts.hyperExectime[i] + otherDemand) / (1.0 - otherUtil));
+					if (guestAlignedR > ts.deadline[i] - hyperR || hyperAlignedF > ts.period[i]){
+						return Verdict.UNKNOWN;
+					}
+				}
+			}
+			return Verdict.ACCEPT;
+		}
+	};
+
+	/**
+	 * Runs {@link LayeredTrustExactScheduler#isSchedulable()}, which always decides.
+	 */
+	public static final Stage EXACT = new Stage() {
+		@Override
+		public String getName() {
+			return "exact";
+		}
+
+		@Override
+		public Verdict decide(LayeredTrustExactScheduler scheduler, CompiledTaskSet ts) {
+			return scheduler.isSchedulable() ? Verdict.ACCEPT : Verdict.REJECT;
+		}
+	};
+
+	final List<Stage> stages;
+
+	// number of task sets decided by each stage
+	final long[] decisions;
+	long undecided = 0;
+
+	Stage decidingStage = null;
+
+	public SchedulabilityPipeline(){
+		this(Arrays.asList(UTILIZATION_BOUND, RESPONSE_TIME_LOWER_BOUND, RESPONSE_TIME_UPPER_BOUND, EXACT));
+	}
+
+	public SchedulabilityPipeline(List<Stage> stages){
+		this.stages = new ArrayList<Stage>(stages);
+		this.decisions = new long[stages.size()];
+	}
+
+	public List<Stage> getStages(){
+		return stages;
+	}
+
+	/**
+	 * Runs the stages in order until one of them accepts or rejects the task set.
+	 * Returns UNKNOWN if no stage decides, e.g., if the exact stage is not part
+	 * of the pipeline.
+	 */
+	public Verdict evaluate(LayeredTrustExactScheduler scheduler){
+		CompiledTaskSet ts = scheduler.compile();
+		decidingStage = null;
+		for (int s=0;s<stages.size();s++){
+			Verdict v = stages.get(s).decide(scheduler, ts);
+			if (v != Verdict.UNKNOWN){
+				decidingStage = stages.get(s);
+				decisions[s]++;
+				return v;
+			}
+		}
+		undecided++;
+		return Verdict.UNKNOWN;
+	}
+
+	public boolean isSchedulable(LayeredTrustExactScheduler scheduler){
+		return evaluate(scheduler) == Verdict.ACCEPT;
+	}
+
+	/**
+	 * The stage that decided the last evaluation or null if none did
+	 */
+	public Stage getDecidingStage(){
+		return decidingStage;
+	}
+
+	public long getDecisions(Stage stage){
+		int s = stages.indexOf(stage);
+		return s < 0 ? 0 : decisions[s];
+	}
+
+	public long getUndecided(){
+		return undecided;
+	}
+
+	public void resetStatistics(){
+		Arrays.fill(decisions, 0);
+		undecided = 0;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder();
+		for (int s=0;s<stages.size();s++){
+			sb.append(stages.get(s).getName()).append(": ").append(decisions[s]).append("\n");
+		}
+		sb.append("undecided: ").append(undecided);
+		return sb.toString();
+	}
+}
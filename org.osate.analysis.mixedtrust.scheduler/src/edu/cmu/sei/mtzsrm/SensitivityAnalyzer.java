@@ -0,0 +1,446 @@
+/**
+ * Mixed-Trust Scheduling Analysis OSATE Plugin
+ *
+ * Copyright 2021 Carnegie Mellon University.
+ *
+ * NO WARRANTY. THIS CARNEGIE MELLON UNIVERSITY AND SOFTWARE ENGINEERING
+ * INSTITUTE MATERIAL IS FURNISHED ON AN "AS-IS" BASIS. CARNEGIE MELLON
+ * UNIVERSITY MAKES NO WARRANTIES OF ANY KIND, EITHER EXPRESSED OR IMPLIED,
+ * AS TO ANY MATTER INCLUDING, BUT NOT LIMITED TO, WARRANTY OF FITNESS FOR
+ * PURPOSE OR MERCHANTABILITY, EXCLUSIVITY, OR RESULTS OBTAINED FROM USE OF
+ * THE MATERIAL. CARNEGIE MELLON UNIVERSITY DOES NOT MAKE ANY WARRANTY OF
+ * ANY KIND WITH RESPECT TO FREEDOM FROM PATENT, TRADEMARK, OR COPYRIGHT
+ * INFRINGEMENT.
+ *
+ * Released under the Eclipse Public License - v 2.0 license, please see
+ * license.txt or contact permission@sei.cmu.edu for full terms.
+ *
+ * [DISTRIBUTION STATEMENT A] This material has been approved for public
+ * release and unlimited distribution.  Please see Copyright notice for
+ * non-US Government use and distribution.
+ *
+ * Carnegie Mellon® is registered in the U.S. Patent and Trademark Office
+ * by Carnegie Mellon University.
+ *
+ * DM21-0927
+ */
+
+
+package edu.cmu.sei.mtzsrm;
+
+import edu.cmu.sei.mtzsrm.LayeredTrustExactScheduler.Alignment;
+
+/**
+ * Sensitivity analysis of the execution times of a {@link LayeredTrustExactScheduler}
+ * task set: the largest guest or hypertask execution time of a task, and the largest
+ * factor by which all the guest or all the hypertask execution times can be scaled,
+ * that keep the task set schedulable according to the exact analysis.
+ *
+ * The searches are binary searches that assume schedulability is monotonic in the
+ * execution times. Every probe runs on a private copy of the compiled task set and
+ * only analyzes what the probed execution times affect:
+ * <ul>
+ * <li>the hypertask analysis does not depend on the guest execution times, hence it
+ * runs once for all the guest probes, and the guest tasks of higher or equal priority
+ * than the probed task are analyzed once,</li>
+ * <li>the busy periods of the largest schedulable probe so far are lower bounds of the
+ * busy periods of larger probes and seed their fixed-point iterations,</li>
+ * <li>a probe stops at the first task that misses its deadline.</li>
+ * </ul>
+ * The tasks and the scheduler are not modified.
+ */
+public class SensitivityAnalyzer {
+
+	final LayeredTrustExactScheduler scheduler;
+
+	// relative precision of the scaling factors of the whole task set
+	double precision = 0.001;
+
+	long probes = 0;
+
+	public SensitivityAnalyzer(LayeredTrustExactScheduler scheduler){
+		this.scheduler = scheduler;
+	}
+
+	public void setPrecision(double precision){
+		this.precision = precision;
+	}
+
+	public double getPrecision(){
+		return precision;
+	}
+
+	/**
+	 * Number of task set variations analyzed so far
+	 */
+	public long getProbes(){
+		return probes;
+	}
+
+	/**
+	 * Largest guest execution time of the task that keeps the task set
+	 * schedulable, or -1 if the task set is not schedulable with any.
+	 */
+	public int getMaxGuestExectime(MixedTrustTask t){
+		CompiledTaskSet ts = new CompiledTaskSet(scheduler.compile());
+		int i = ts.indexOf(t);
+		int[] activePeriods = new int[ts.size];
+		int[] guestAligned = new int[ts.size];
+		int[] hyperAligned = new int[ts.size];
+		int[] guestAlignedSeeds = new int[ts.size];
+		int[] hyperAlignedSeeds = new int[ts.size];
+
+		ts.setGuestExectime(i, 0);
+		ts.refresh();
+		try {
+			if (!isHypertaskSetSchedulable(ts, null, activePeriods)){
+				return -1;
+			}
+			// tasks of higher or equal priority do not suffer the guest task
+			for (int k=0;k<ts.lowerPriorityStart[i];k++){
+				if (k != i && !isGuesttaskSchedulable(ts, k, null, null, guestAligned, hyperAligned)){
+					return -1;
+				}
+			}
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			return -1;
+		}
+
+		// the guest job executes before its enforcement timeout and the utilization is below 1
+		double otherUtil = ts.utilization - ts.hyperExectime[i] / ((double) ts.period[i]);
+		long hi = Math.max(0, Math.min(ts.enforcementTimeout[i],
+				(long) Math.ceil(ts.period[i] * (1.0 - otherUtil)) - ts.hyperExectime[i]));
+
+		// lo is the largest schedulable and hi+1 the smallest not schedulable execution time
+		int lo = -1;
+		hi++;
+		while (hi - lo > 1){
+			int mid = (int) (lo + (hi - lo) / 2);
+			if (probeGuestExectime(ts, i, mid, guestAlignedSeeds, hyperAlignedSeeds, guestAligned, hyperAligned)){
+				lo = mid;
+				for (int k=0;k<ts.size;k++){
+					guestAlignedSeeds[k] = guestAligned[k];
+					hyperAlignedSeeds[k] = hyperAligned[k];
+				}
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private boolean probeGuestExectime(CompiledTaskSet ts, int i, int c,
+			int[] guestAlignedSeeds, int[] hyperAlignedSeeds, int[] guestAligned, int[] hyperAligned){
+		probes++;
+		ts.setGuestExectime(i, c);
+		ts.refresh();
+		if (ts.utilization >= 1.0){
+			return false;
+		}
+		try {
+			if (!isGuesttaskSchedulable(ts, i, guestAlignedSeeds, hyperAlignedSeeds, guestAligned, hyperAligned)){
+				return false;
+			}
+			for (int k=ts.lowerPriorityStart[i];k<ts.size;k++){
+				if (!isGuesttaskSchedulable(ts, k, guestAlignedSeeds, hyperAlignedSeeds, guestAligned, hyperAligned)){
+					return false;
+				}
+			}
+		} catch (ArithmeticException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Largest hypertask execution time of the task that keeps the task set
+	 * schedulable, or -1 if the task set is not schedulable with any.
+	 */
+	public int getMaxHyperExectime(MixedTrustTask t){
+		CompiledTaskSet ts = new CompiledTaskSet(scheduler.compile());
+		int i = ts.indexOf(t);
+		int[] activePeriods = new int[ts.size];
+		int[] activePeriodSeeds = new int[ts.size];
+
+		double otherUtil = ts.utilization - ts.hyperExectime[i] / ((double) ts.period[i]);
+		long hi = Math.max(0, Math.min(ts.deadline[i],
+				(long) Math.ceil(ts.period[i] * (1.0 - otherUtil))));
+
+		int lo = -1;
+		hi++;
+		while (hi - lo > 1){
+			int mid = (int) (lo + (hi - lo) / 2);
+			probes++;
+			ts.setHyperExectime(i, mid);
+			ts.refresh();
+			if (isSchedulable(ts, activePeriodSeeds, activePeriods)){
+				lo = mid;
+				System.arraycopy(activePeriods, 0, activePeriodSeeds, 0, ts.size);
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Largest factor of the guest execution time of the task that keeps the task
+	 * set schedulable, infinite for a task without guest execution, or -1 if the
+	 * task set is not schedulable with any.
+	 */
+	public double getGuestScalingFactor(MixedTrustTask t){
+		int c = getMaxGuestExectime(t);
+		if (c < 0){
+			return -1;
+		}
+		int exectime = t.getGuestTask().getExectime();
+		return exectime == 0 ? Double.POSITIVE_INFINITY : c / ((double) exectime);
+	}
+
+	/**
+	 * Largest factor of the hypertask execution time of the task that keeps the
+	 * task set schedulable, infinite for a task without hypertask execution, or -1
+	 * if the task set is not schedulable with any.
+	 */
+	public double getHyperScalingFactor(MixedTrustTask t){
+		int c = getMaxHyperExectime(t);
+		if (c < 0){
+			return -1;
+		}
+		int exectime = t.getHyperTask().getExectime();
+		return exectime == 0 ? Double.POSITIVE_INFINITY : c / ((double) exectime);
+	}
+
+	/**
+	 * Largest factor, within the precision, by which all the guest execution times
+	 * can be scaled (rounding down) keeping the task set schedulable, infinite
+	 * without guest execution, or -1 if the task set is not schedulable with any.
+	 */
+	public double getGuestScalingFactor(){
+		CompiledTaskSet ts = new CompiledTaskSet(scheduler.compile());
+		int[] exectimes = ts.guestExectime.clone();
+		int[] activePeriods = new int[ts.size];
+		int[] guestAligned = new int[ts.size];
+		int[] hyperAligned = new int[ts.size];
+		int[] guestAlignedSeeds = new int[ts.size];
+		int[] hyperAlignedSeeds = new int[ts.size];
+
+		double guestUtil = 0.0;
+		for (int k=0;k<ts.size;k++){
+			guestUtil += exectimes[k] / ((double) ts.period[k]);
+		}
+
+		try {
+			if (!isHypertaskSetSchedulable(ts, null, activePeriods)){
+				return -1;
+			}
+		} catch (ArithmeticException e) {
+			return -1;
+		}
+		if (!probeGuestScaling(ts, exectimes, 0.0, null, null, guestAligned, hyperAligned)){
+			return -1;
+		}
+		if (guestUtil == 0.0){
+			return Double.POSITIVE_INFINITY;
+		}
+
+		double lo = 0.0;
+		double hi = (1.0 - (ts.utilization - guestUtil)) / guestUtil;
+		while (hi - lo > precision * hi && !sameExectimes(exectimes, lo, hi)){
+			double mid = (lo + hi) / 2;
+			if (probeGuestScaling(ts, exectimes, mid, guestAlignedSeeds, hyperAlignedSeeds, guestAligned, hyperAligned)){
+				lo = mid;
+				System.arraycopy(guestAligned, 0, guestAlignedSeeds, 0, ts.size);
+				System.arraycopy(hyperAligned, 0, hyperAlignedSeeds, 0, ts.size);
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private boolean probeGuestScaling(CompiledTaskSet ts, int[] exectimes, double factor,
+			int[] guestAlignedSeeds, int[] hyperAlignedSeeds, int[] guestAligned, int[] hyperAligned){
+		probes++;
+		for (int k=0;k<ts.size;k++){
+			ts.setGuestExectime(k, (int) Math.floor(factor * exectimes[k]));
+		}
+		ts.refresh();
+		if (ts.utilization >= 1.0){
+			return false;
+		}
+		try {
+			for (int k=0;k<ts.size;k++){
+				if (!isGuesttaskSchedulable(ts, k, guestAlignedSeeds, hyperAlignedSeeds, guestAligned, hyperAligned)){
+					return false;
+				}
+			}
+		} catch (ArithmeticException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Largest factor, within the precision, by which all the hypertask execution
+	 * times can be scaled (rounding down) keeping the task set schedulable, infinite
+	 * without hypertask execution, or -1 if the task set is not schedulable with any.
+	 */
+	public double getHyperScalingFactor(){
+		CompiledTaskSet ts = new CompiledTaskSet(scheduler.compile());
+		int[] exectimes = ts.hyperExectime.clone();
+		int[] activePeriods = new int[ts.size];
+		int[] activePeriodSeeds = new int[ts.size];
+
+		double hyperUtil = 0.0;
+		for (int k=0;k<ts.size;k++){
+			hyperUtil += exectimes[k] / ((double) ts.period[k]);
+		}
+
+		if (!probeHyperScaling(ts, exectimes, 0.0, null, activePeriods)){
+			return -1;
+		}
+		if (hyperUtil == 0.0){
+			return Double.POSITIVE_INFINITY;
+		}
+
+		double lo = 0.0;
+		double hi = (1.0 - (ts.utilization - hyperUtil)) / hyperUtil;
+		while (hi - lo > precision * hi && !sameExectimes(exectimes, lo, hi)){
+			double mid = (lo + hi) / 2;
+			if (probeHyperScaling(ts, exectimes, mid, activePeriodSeeds, activePeriods)){
+				lo = mid;
+				System.arraycopy(activePeriods, 0, activePeriodSeeds, 0, ts.size);
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private boolean probeHyperScaling(CompiledTaskSet ts, int[] exectimes, double factor,
+			int[] activePeriodSeeds, int[] activePeriods){
+		probes++;
+		for (int k=0;k<ts.size;k++){
+			ts.setHyperExectime(k, (int) Math.floor(factor * exectimes[k]));
+		}
+		ts.refresh();
+		return isSchedulable(ts, activePeriodSeeds, activePeriods);
+	}
+
+	/**
+	 * True if no execution time changes between the two scaling factors, i.e.,
+	 * the search cannot refine the factor any further.
+	 */
+	private static boolean sameExectimes(int[] exectimes, double lo, double hi){
+		for (int k=0;k<exectimes.length;k++){
+			if (Math.floor(lo * exectimes[k]) != Math.floor(hi * exectimes[k])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Exact analysis of the whole task set with the hypertask active periods
+	 * seeded from a task set with smaller hypertask execution times. The guest
+	 * tasks are analyzed from scratch since the enforcement timeouts change.
+	 */
+	private boolean isSchedulable(CompiledTaskSet ts, int[] activePeriodSeeds, int[] activePeriods){
+		if (ts.utilization >= 1.0){
+			return false;
+		}
+		int[] guestAligned = new int[ts.size];
+		int[] hyperAligned = new int[ts.size];
+		try {
+			if (!isHypertaskSetSchedulable(ts, activePeriodSeeds, activePeriods)){
+				return false;
+			}
+			for (int k=0;k<ts.size;k++){
+				if (!isGuesttaskSchedulable(ts, k, null, null, guestAligned, hyperAligned)){
+					return false;
+				}
+			}
+		} catch (ArithmeticException e) {
+			// busy window beyond the int range, see IntervalMath
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Hypertask analysis storing the active periods and the enforcement timeouts
+	 * in the compiled task set.
+	 */
+	private boolean isHypertaskSetSchedulable(CompiledTaskSet ts, int[] activePeriodSeeds, int[] activePeriods){
+		for (int k=0;k<ts.size;k++){
+			activePeriods[k] = scheduler.calculateHyperTaskNonPreemptiveActivePeriod(ts, k,
+					activePeriodSeeds == null ? 0 : activePeriodSeeds[k]);
+			int r = scheduler.calculateHypertaskNonPreemptiveResponseTimeInActivePeriod(ts, k, activePeriods[k]);
+			if (r > ts.deadline[k]){
+				return false;
+			}
+			ts.setEnforcementTimeout(k, ts.deadline[k] - r);
+		}
+		return true;
+	}
+
+	private boolean isGuesttaskSchedulable(CompiledTaskSet ts, int k,
+			int[] guestAlignedSeeds, int[] hyperAlignedSeeds, int[] guestAligned, int[] hyperAligned){
+		guestAligned[k] = scheduler.calculateGuestBusyPeriod(ts, k, Alignment.GUESTTASK,
+				guestAlignedSeeds == null ? 0 : guestAlignedSeeds[k]);
+		hyperAligned[k] = scheduler.calculateGuestBusyPeriod(ts, k, Alignment.HYPERTASK,
+				hyperAlignedSeeds == null ? 0 : hyperAlignedSeeds[k]);
+		int r = Math.max(
+				scheduler.calculateGuestTaskResponseTimeInBusyPeriod(ts, k, Alignment.GUESTTASK, guestAligned[k]),
+				scheduler.calculateGuestTaskResponseTimeInBusyPeriod(ts, k, Alignment.HYPERTASK, hyperAligned[k])
+				);
+		return r <= ts.enforcementTimeout[k];
+	}
+
+	public static void testThreeTasks(){
+		MixedTrustTask mt1 = new MixedTrustTask(
+				8, // period
+				8, // deadline
+				0, // guest criticality
+				new int[] {2}, // guest exectimes
+				1, // hyper criticality
+				0, // hyper exectime
+				2);   // priority
+		MixedTrustTask mt2 = new MixedTrustTask(
+				14, // period
+				14, // deadline
+				0, // guest criticality
+				new int[] {2}, // guest exectimes
+				1, // hyper criticality
+				2, // hyper exectime
+				1);   // priority
+		MixedTrustTask mt3 = new MixedTrustTask(
+				20, // period
+				20, // deadline
+				0, // guest criticality
+				new int[] {4}, // guest exectimes
+				1, // hyper criticality
+				1, // hyper exectime
+				0);   // priority
+
+		LayeredTrustExactScheduler sched  = new LayeredTrustExactScheduler();
+		sched.add(mt1);
+		sched.add(mt2);
+		sched.add(mt3);
+
+		SensitivityAnalyzer sensitivity = new SensitivityAnalyzer(sched);
+		for (MixedTrustTask ti:sched.getTaskset()){
+			System.out.println("Task["+ti.getUniqueId()+"]: max guest C = "+sensitivity.getMaxGuestExectime(ti)
+					+", max hyper C = "+sensitivity.getMaxHyperExectime(ti));
+		}
+		System.out.println("Guest scaling = "+sensitivity.getGuestScalingFactor());
+		System.out.println("Hyper scaling = "+sensitivity.getHyperScalingFactor());
+		System.out.println("Probes = "+sensitivity.getProbes());
+	}
+
+	public static void main(String args[]){
+		testThreeTasks();
+	}
+}
@@ -29,9 +29,8 @@ package edu.cmu.sei.mtzsrm;
 
 public class Unique {
 
-	static long nextUniqueId=0;
-
-	long uniqueId = nextUniqueId++;
+	// from the allocator of the creating thread, see IdAllocator
+	long uniqueId = IdAllocator.current().nextId(IdAllocator.Sequence.MIXED_TRUST_TASK);
 
 	public long getUniqueId()
 	{
@@ -31,9 +31,13 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+import edu.cmu.sei.mtzsrm.BatchEvaluator;
+import edu.cmu.sei.mtzsrm.IncrementalAdmissionController;
 import edu.cmu.sei.mtzsrm.LayeredTrustExactScheduler;
 import edu.cmu.sei.mtzsrm.LayeredTrustScheduler;
 import edu.cmu.sei.mtzsrm.MixedTrustTask;
+import edu.cmu.sei.mtzsrm.OptimalPriorityAssignment;
+import edu.cmu.sei.mtzsrm.SchedulabilityPipeline;
 
 public class Experimenter {
 
@@ -92,6 +96,50 @@ public class Experimenter {
 		scheduler.assignDeadlineMonotonicPriorities();
 	}
 
+	/**
+	 * Same task set as {@link #generateTaskset(LayeredTrustScheduler, double, int, double, double, double, Random)}
+	 * added to a batch in the flat layout, without creating tasks.
+	 */
+	public static void generateTaskset(
+			BatchEvaluator.Batch batch,
+			double utilization,
+			int numTasks,
+			double tmaxtminRatio,
+			double DTRatio,
+			double hyperGuestRatio,
+			Random random
+			){
+
+		double utilPerTask = utilization / (numTasks);
+		int Tmin = 1000;
+		int Tmax = (int) (Tmin * tmaxtminRatio);
+		int[] deadlines = new int[numTasks];
+		int[][] parameters = new int[numTasks][];
+
+		for (int i=0;i<numTasks;i++){
+			int T,C,kC,CkC,D;
+			T = (int) (Tmin + (random.nextDouble() * (Tmax-Tmin)));
+			CkC = (int) (utilPerTask * T);
+			C = (int) (CkC * (1-hyperGuestRatio));
+			kC = (int) (CkC * hyperGuestRatio);
+			D = (int) (T * DTRatio);
+			deadlines[i] = D;
+			parameters[i] = new int[] {T, D, C, kC};
+		}
+
+		// deadline monotonic priorities, ties in creation order as DecreasingDeadlineComparator
+		for (int i=0;i<numTasks;i++){
+			int priority=0;
+			for (int j=0;j<numTasks;j++){
+				if (deadlines[j] > deadlines[i] || (deadlines[j] == deadlines[i] && j < i)){
+					priority++;
+				}
+			}
+			batch.addTask(parameters[i][0], parameters[i][1], parameters[i][2], parameters[i][3], priority);
+		}
+		batch.endTaskSet();
+	}
+
 	final static int NUM_EXPERIMENTS =100000;
 
 	public static void experimentGrowingUtilization(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
@@ -335,6 +383,189 @@ public class Experimenter {
 		}
 	}
 
+	/**
+	 * Compares the number of fixed-point iterations of the exact analysis with and
+	 * without warm starts on the same task sets.
+	 */
+	public static void experimentWarmStart(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
+		System.out.println("------ Warm Start -------");
+		System.out.println("Utilization, Cold Iterations, Warm Iterations, Warm Starts, Savings");
+		for (double util = 0.1 ; util <= 1.0 ; util += 0.1){
+			long coldIterations=0;
+			long warmIterations=0;
+			long warmStarts=0;
+
+			for (int x = 0; x<NUM_EXPERIMENTS/100;x++){
+				long seed = random.nextLong();
+				LayeredTrustExactScheduler cold = new LayeredTrustExactScheduler();
+				generateTaskset(cold, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, new Random(seed));
+				cold.setWarmStart(false);
+				boolean coldSchedulable = cold.isSchedulable();
+				coldIterations += cold.getFixedPointIterations();
+
+				LayeredTrustExactScheduler warm = new LayeredTrustExactScheduler();
+				generateTaskset(warm, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, new Random(seed));
+				warm.setWarmStart(true);
+				boolean warmSchedulable = warm.isSchedulable();
+				warmIterations += warm.getFixedPointIterations();
+				warmStarts += warm.getWarmStarts();
+
+				if (coldSchedulable != warmSchedulable){
+					System.out.println("Warm start changed the result of task set with seed "+seed);
+				}
+			}
+			System.out.println(String.format("%.1f, %d, %d, %d, %.1f%%",
+					util, coldIterations, warmIterations, warmStarts,
+					coldIterations == 0 ? 0.0 : 100.0 * (coldIterations - warmIterations) / coldIterations));
+		}
+		System.out.println("----------\n\n");
+	}
+
+	/**
+	 * Reports how many task sets each stage of the schedulability pipeline decides.
+	 */
+	public static void experimentPipeline(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
+		System.out.println("------ Schedulability Pipeline -------");
+		for (double util = 0.1 ; util <= 1.0 ; util += 0.1){
+			SchedulabilityPipeline pipeline = new SchedulabilityPipeline();
+			long startms = System.currentTimeMillis();
+			for (int x = 0; x<NUM_EXPERIMENTS/100;x++){
+				LayeredTrustExactScheduler sched = new LayeredTrustExactScheduler();
+				generateTaskset(sched, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, random);
+				pipeline.evaluate(sched);
+			}
+			long endms = System.currentTimeMillis();
+			System.out.println(String.format("Utilization %.1f (%d ms)", util, endms-startms));
+			System.out.println(pipeline);
+		}
+		System.out.println("----------\n\n");
+	}
+
+	/**
+	 * Compares admitting tasks one at a time with the incremental admission
+	 * controller against analyzing the whole task set after each addition.
+	 */
+	public static void experimentIncrementalAdmission(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
+		System.out.println("------ Incremental Admission -------");
+		System.out.println("Utilization, Full Iterations, Incremental Iterations, Admitted");
+		for (double util = 0.1 ; util <= 1.0 ; util += 0.1){
+			long fullIterations=0;
+			long incrementalIterations=0;
+			long admitted=0;
+
+			for (int x = 0; x<NUM_EXPERIMENTS/1000;x++){
+				LayeredTrustExactScheduler generated = new LayeredTrustExactScheduler();
+				generateTaskset(generated, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, random);
+
+				IncrementalAdmissionController controller = new IncrementalAdmissionController();
+				LayeredTrustExactScheduler full = new LayeredTrustExactScheduler();
+				for (MixedTrustTask t:generated.getTaskset()){
+					full.add(t);
+					if (!full.isSchedulable()){
+						full.remove(t);
+					}
+					if (controller.tryAdmit(t)){
+						admitted++;
+					}
+				}
+				fullIterations += full.getFixedPointIterations();
+				incrementalIterations += controller.getScheduler().getFixedPointIterations();
+			}
+			System.out.println(String.format("%.1f, %d, %d, %d", util, fullIterations, incrementalIterations, admitted));
+		}
+		System.out.println("----------\n\n");
+	}
+
+	/**
+	 * Compares the task sets schedulable with deadline-monotonic priorities against
+	 * the optimal priority assignment.
+	 */
+	public static void experimentPriorityAssignment(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
+		System.out.println("------ Priority Assignment -------");
+		System.out.println("Utilization, Deadline Monotonic, Optimal, Level Tests, Pruned, Optimal ms");
+		for (double util = 0.1 ; util <= 1.0 ; util += 0.1){
+			int deadlineMonotonic=0;
+			int optimal=0;
+			long tests=0;
+			long pruned=0;
+			long optimalms=0;
+
+			for (int x = 0; x<NUM_EXPERIMENTS/1000;x++){
+				LayeredTrustExactScheduler sched = new LayeredTrustExactScheduler();
+				generateTaskset(sched, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, random);
+				if (sched.isSchedulable()){
+					deadlineMonotonic++;
+				}
+
+				OptimalPriorityAssignment opa = new OptimalPriorityAssignment(sched);
+				long startms = System.currentTimeMillis();
+				if (opa.assignPriorities()){
+					optimal++;
+				}
+				optimalms += System.currentTimeMillis() - startms;
+				tests += opa.getTests();
+				pruned += opa.getPruned();
+			}
+			System.out.println(String.format("%.1f, %d, %d, %d, %d, %d",
+					util, deadlineMonotonic, optimal, tests, pruned, optimalms));
+		}
+		System.out.println("----------\n\n");
+	}
+
+	/**
+	 * Compares analyzing the task sets one scheduler at a time against the batch
+	 * evaluator, sequential and parallel, on the same task sets.
+	 */
+	public static void experimentBatchEvaluation(Random random, int numTasks, double tmaxTminRatio, double dTRatio, double hyperGuestRatio){
+		System.out.println("------ Batch Evaluation -------");
+		System.out.println("Utilization, Schedulable, Scheduler ms, Batch Generation ms, Batch ms, Parallel Batch ms");
+		int threads = Runtime.getRuntime().availableProcessors();
+		BatchEvaluator sequential = new BatchEvaluator();
+		BatchEvaluator parallel = new BatchEvaluator(threads);
+		BatchEvaluator.Batch batch = new BatchEvaluator.Batch();
+		BatchEvaluator.Results results = new BatchEvaluator.Results();
+		for (double util = 0.1 ; util <= 1.0 ; util += 0.1){
+			long seed = random.nextLong();
+
+			long startms = System.currentTimeMillis();
+			Random schedulerRandom = new Random(seed);
+			int schedulable=0;
+			for (int x = 0; x<NUM_EXPERIMENTS/10;x++){
+				LayeredTrustExactScheduler sched = new LayeredTrustExactScheduler();
+				generateTaskset(sched, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, schedulerRandom);
+				if (sched.isSchedulable()){
+					schedulable++;
+				}
+			}
+			long schedulerms = System.currentTimeMillis() - startms;
+
+			startms = System.currentTimeMillis();
+			Random batchRandom = new Random(seed);
+			batch.clear();
+			for (int x = 0; x<NUM_EXPERIMENTS/10;x++){
+				generateTaskset(batch, util, numTasks, tmaxTminRatio, dTRatio, hyperGuestRatio, batchRandom);
+			}
+			long generationms = System.currentTimeMillis() - startms;
+
+			startms = System.currentTimeMillis();
+			sequential.evaluate(batch.tasks(), batch.setStarts(), batch.getNumSets(), results);
+			long batchms = System.currentTimeMillis() - startms;
+			if (results.countSchedulable() != schedulable){
+				System.out.println("Batch evaluation changed the result of task sets with seed "+seed);
+			}
+
+			startms = System.currentTimeMillis();
+			parallel.evaluate(batch.tasks(), batch.setStarts(), batch.getNumSets(), results);
+			long parallelms = System.currentTimeMillis() - startms;
+			if (results.countSchedulable() != schedulable){
+				System.out.println("Parallel batch evaluation changed the result of task sets with seed "+seed);
+			}
+
+			System.out.println(String.format("%.1f, %d, %d, %d, %d, %d", util, schedulable, schedulerms, generationms, batchms, parallelms));
+		}
+		System.out.println("----------\n\n");
+	}
+
 	public static void main(String args[]){
 		Random random = new Random();
 		double utilization=0.8;